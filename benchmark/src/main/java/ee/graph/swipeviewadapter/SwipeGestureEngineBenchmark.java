@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The gesture rules the touch listeners run for each touch event: a single move of an ongoing
+ * swipe, and whole gestures from the down event to the release decision.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SwipeGestureEngineBenchmark {
+    private static final int
+            SAMPLES = 1024, // power of two, see next()
+            MOVES = 16, // move events of a gesture, about a quarter of a second at 60 events per second
+            WIDTH = 1080;
+
+    private final float[]
+            mMoveX = new float[SAMPLES * MOVES],
+            mMoveY = new float[SAMPLES * MOVES],
+            mVelocityX = new float[SAMPLES],
+            mVelocityY = new float[SAMPLES];
+    private final boolean[] mCanDismiss = new boolean[SAMPLES];
+    private SwipeGestureEngine mEngine;
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mEngine = new SwipeGestureEngine(24, 50 * 16, 8000);
+        mEngine.setViewWidth(WIDTH);
+        mEngine.addEnabledDirection(SwipeDirections.DIRECTION_NORMAL_LEFT);
+        mEngine.addEnabledDirection(SwipeDirections.DIRECTION_NORMAL_RIGHT);
+        mEngine.addEnabledDirection(SwipeDirections.DIRECTION_FAR_RIGHT);
+        for (int i = 0; i < SAMPLES; i++) {
+            // Mostly horizontal gestures of random length, with some vertical noise
+            float endX = (random.nextFloat() * 2 - 1) * WIDTH;
+            float endY = (random.nextFloat() * 2 - 1) * 60;
+            for (int move = 0; move < MOVES; move++) {
+                float fraction = (move + 1) / (float) MOVES;
+                mMoveX[i * MOVES + move] = endX * fraction + random.nextFloat() * 8;
+                mMoveY[i * MOVES + move] = endY * fraction;
+            }
+            mVelocityX[i] = (random.nextFloat() * 2 - 1) * 6000;
+            mVelocityY[i] = (random.nextFloat() * 2 - 1) * 2000;
+            mCanDismiss[i] = random.nextBoolean();
+        }
+        // An ongoing swipe for onMove()
+        mEngine.onDown(0, 0);
+        mEngine.onMove(WIDTH / 4, 0);
+    }
+
+    private int next() {
+        return mIndex = (mIndex + 1) & (SAMPLES - 1);
+    }
+
+    /**
+     * Run for each move event of a swipe
+     */
+    @Benchmark
+    public int onMove() {
+        int i = next();
+        return mEngine.onMove(mMoveX[i * MOVES + MOVES - 1], mMoveY[i * MOVES + MOVES - 1]);
+    }
+
+    /**
+     * A down event, MOVES move events and the release decision
+     */
+    @Benchmark
+    public int gesture() {
+        int i = next();
+        SwipeGestureEngine engine = mEngine;
+        engine.onDown(0, 0);
+        int moves = 0;
+        for (int move = i * MOVES; move < (i + 1) * MOVES; move++)
+            moves += engine.onMove(mMoveX[move], mMoveY[move]);
+        int release = engine.onUp(mMoveX[(i + 1) * MOVES - 1], mVelocityX[i], mVelocityY[i], mCanDismiss[i], true);
+        return moves + release;
+    }
+}
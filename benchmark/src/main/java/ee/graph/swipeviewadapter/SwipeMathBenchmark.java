@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The computations run for every move event and animation frame of a swipe.
+ *
+ * Inputs are read from arrays of random samples so the JIT can't fold them into constants.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SwipeMathBenchmark {
+    private static final int
+            SAMPLES = 1024, // power of two, see next()
+            ROW_COUNT = 120,
+            ROW_HEIGHT = 16,
+            WIDTH = 1080;
+
+    private final boolean[]
+            mIsFar = new boolean[SAMPLES],
+            mIsRight = new boolean[SAMPLES];
+    private final float[]
+            mTranslations = new float[SAMPLES],
+            mVelocities = new float[SAMPLES],
+            mRatios = new float[SAMPLES];
+    private final int[]
+            mTouchY = new int[SAMPLES],
+            mRowTops = new int[ROW_COUNT],
+            mRowBottoms = new int[ROW_COUNT];
+    private final SwipeMath.RowBounds mRowBounds = new SwipeMath.RowBounds() {
+        @Override
+        public int getRowTop(int index) {
+            return mRowTops[index];
+        }
+
+        @Override
+        public int getRowBottom(int index) {
+            return mRowBottoms[index];
+        }
+    };
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            mIsFar[i] = random.nextBoolean();
+            mIsRight[i] = random.nextBoolean();
+            mTranslations[i] = (random.nextFloat() * 2 - 1) * WIDTH;
+            mVelocities[i] = (random.nextFloat() * 2 - 1) * 8000;
+            mRatios[i] = random.nextFloat();
+            mTouchY[i] = random.nextInt(ROW_COUNT * ROW_HEIGHT);
+        }
+        // Rows separated by a one pixel divider, as in a ListView
+        for (int i = 0; i < ROW_COUNT; i++) {
+            mRowTops[i] = i * ROW_HEIGHT;
+            mRowBottoms[i] = (i + 1) * ROW_HEIGHT - 1;
+        }
+    }
+
+    private int next() {
+        return mIndex = (mIndex + 1) & (SAMPLES - 1);
+    }
+
+    @Benchmark
+    public int getDirection() {
+        int i = next();
+        return SwipeMath.getDirection(mIsFar[i], mIsRight[i]);
+    }
+
+    @Benchmark
+    public float getSwipeRatio() {
+        int i = next();
+        return SwipeMath.getSwipeRatio(mTranslations[i], WIDTH * 0.5f);
+    }
+
+    @Benchmark
+    public int getCurrentValueFromRatio() {
+        int i = next();
+        return SwipeMath.getCurrentValueFromRatio(ROW_HEIGHT, 4 * ROW_HEIGHT, mRatios[i]);
+    }
+
+    @Benchmark
+    public int getSettleDuration() {
+        int i = next();
+        return SwipeMath.getSettleDuration(mTranslations[i], mVelocities[i], 250);
+    }
+
+    @Benchmark
+    public int findRowAt() {
+        return SwipeMath.findRowAt(mRowBounds, ROW_COUNT, mTouchY[next()]);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lookups the adapter and the touch listeners run per row bind and per gesture: enabled
+ * directions, per direction state indexes, cached background heights and pending dismisses, and
+ * the cost of recording a phase in {@link SwipeMetrics}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SwipeStateBenchmark {
+    private static final int
+            SAMPLES = 1024, // power of two, see next()
+            LAYOUT_COUNT = 4,
+            WIDTH_SPEC = 1080 | (1 << 30); // an EXACTLY measure spec
+
+    /**
+     * Number of dismisses waiting for the end of the batch window
+     */
+    @Param({"1", "8", "64"})
+    public int pendingCount;
+
+    private final int[]
+            mDirections = new int[SAMPLES],
+            mPositions = new int[SAMPLES],
+            mLayoutIds = new int[SAMPLES];
+    private final long[] mContentKeys = new long[SAMPLES];
+    private int mEnabledDirections;
+    private SwipeMeasureCache mMeasureCache;
+    private SwipePendingDismisses mPendingDismisses;
+    private final SwipeMetrics mMetrics = new SwipeMetrics();
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mEnabledDirections = SwipeDirections.maskOf(SwipeDirections.DIRECTION_NORMAL_LEFT)
+                | SwipeDirections.maskOf(SwipeDirections.DIRECTION_NORMAL_RIGHT)
+                | SwipeDirections.maskOf(SwipeDirections.DIRECTION_FAR_RIGHT);
+        mMeasureCache = new SwipeMeasureCache();
+        for (int layout = 1; layout <= LAYOUT_COUNT; layout++) {
+            for (long key = 0; key < 8; key++)
+                mMeasureCache.put(layout, WIDTH_SPEC, key, 120 + layout);
+        }
+        mPendingDismisses = new SwipePendingDismisses();
+        for (int i = 0; i < pendingCount; i++)
+            mPendingDismisses.add(i * 2, SwipeDirections.DIRECTION_FAR_RIGHT);
+        for (int i = 0; i < SAMPLES; i++) {
+            mDirections[i] = SwipeDirections.directionAt(random.nextInt(SwipeDirections.DIRECTION_COUNT));
+            // Half of the positions are pending when they fall below pendingCount * 2
+            mPositions[i] = random.nextInt(pendingCount * 4);
+            mLayoutIds[i] = 1 + random.nextInt(LAYOUT_COUNT);
+            mContentKeys[i] = random.nextInt(8);
+        }
+    }
+
+    private int next() {
+        return mIndex = (mIndex + 1) & (SAMPLES - 1);
+    }
+
+    @Benchmark
+    public boolean isDirectionEnabled() {
+        return (mEnabledDirections & SwipeDirections.maskOf(mDirections[next()])) != 0;
+    }
+
+    @Benchmark
+    public int indexOfDirection() {
+        return SwipeDirections.indexOf(mDirections[next()]);
+    }
+
+    @Benchmark
+    public int measureCacheGet() {
+        int i = next();
+        return mMeasureCache.get(mLayoutIds[i], WIDTH_SPEC, mContentKeys[i]);
+    }
+
+    /**
+     * Run for every bound row and every hasActions() call while a batch is pending
+     */
+    @Benchmark
+    public int pendingDismissIndexOf() {
+        return mPendingDismisses.indexOf(mPositions[next()]);
+    }
+
+    /**
+     * A dismiss followed by its undo, which leaves the pending dismisses as they were
+     */
+    @Benchmark
+    public boolean pendingDismissAddRemove() {
+        int position = pendingCount * 2 + 1 - 2 * (mPositions[next()] % (pendingCount + 1));
+        mPendingDismisses.add(position, SwipeDirections.DIRECTION_NORMAL_LEFT);
+        return mPendingDismisses.remove(position);
+    }
+
+    /**
+     * Run for each reported phase while metrics are enabled
+     */
+    @Benchmark
+    public void metricsOnPhase() {
+        int i = next();
+        mMetrics.onPhase(i % SwipeMetrics.PHASE_COUNT, (mContentKeys[i] << (i & 15)) * 1000);
+    }
+}
@@ -0,0 +1,132 @@
+package ee.graph.swipeviewadapter;
+
+import android.graphics.Rect;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+
+/**
+ * Compares the linear hit test the touch listener used to run on ACTION_DOWN with the binary
+ * search of {@link SwipeMath#findRowAt}, on a tablet sized list of short rows where more than a
+ * hundred children are visible. Both must find the same row, the timings are logged.
+ */
+public class SwipeHitTestBenchmark extends AndroidTestCase {
+    private static final String TAG = SwipeHitTestBenchmark.class.getSimpleName();
+
+    private static final int
+            WIDTH = 1200,
+            HEIGHT = 1920,
+            ROW_HEIGHT = 16,
+            WARM_UP_ITERATIONS = 2000,
+            ITERATIONS = 20000;
+
+    private ListView mListView;
+    private final Rect mHitRect = new Rect();
+    private final SwipeMath.RowBounds mChildBounds = new SwipeMath.RowBounds() {
+        @Override
+        public int getRowTop(int index) {
+            return mListView.getChildAt(index).getTop();
+        }
+
+        @Override
+        public int getRowBottom(int index) {
+            return mListView.getChildAt(index).getBottom();
+        }
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mListView = new ListView(getContext());
+        mListView.setAdapter(new RowAdapter());
+        mListView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mListView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    public void testBinarySearchMatchesLinearScan() {
+        int childCount = mListView.getChildCount();
+        assertTrue("Expected many visible rows, got " + childCount, childCount > 100);
+        for (int y = -1; y <= HEIGHT; y++) {
+            assertEquals("Row at " + y, linearScan(WIDTH / 2, y), binarySearch(WIDTH / 2, y));
+        }
+    }
+
+    public void testHitTestTimings() {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            linearScan(WIDTH / 2, i % HEIGHT);
+            binarySearch(WIDTH / 2, i % HEIGHT);
+        }
+
+        int checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            checksum += linearScan(WIDTH / 2, i % HEIGHT);
+        long linearNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            checksum -= binarySearch(WIDTH / 2, i % HEIGHT);
+        long binaryNanos = System.nanoTime() - start;
+
+        assertEquals(0, checksum);
+        Log.i(TAG, mListView.getChildCount() + " rows, linear scan: " + linearNanos / ITERATIONS
+                + " ns/op, binary search: " + binaryNanos / ITERATIONS + " ns/op");
+    }
+
+    private int linearScan(int x, int y) {
+        Rect rect = mHitRect;
+        int childCount = mListView.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            mListView.getChildAt(i).getHitRect(rect);
+            int width = rect.width();
+            rect.left = rect.left - width;
+            rect.right = rect.right + width;
+            if (rect.contains(x, y))
+                return i;
+        }
+        return -1;
+    }
+
+    private int binarySearch(int x, int y) {
+        int index = SwipeMath.findRowAt(mChildBounds, mListView.getChildCount(), y);
+        if (index == -1)
+            return -1;
+        Rect rect = mHitRect;
+        mListView.getChildAt(index).getHitRect(rect);
+        int width = rect.width();
+        rect.left = rect.left - width;
+        rect.right = rect.right + width;
+        return rect.contains(x, y) ? index : -1;
+    }
+
+    private class RowAdapter extends BaseAdapter {
+        @Override
+        public int getCount() {
+            return 1000;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return position;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            View view = convertView;
+            if (view == null) {
+                view = new View(parent.getContext());
+                view.setMinimumHeight(ROW_HEIGHT);
+            }
+            return view;
+        }
+    }
+}
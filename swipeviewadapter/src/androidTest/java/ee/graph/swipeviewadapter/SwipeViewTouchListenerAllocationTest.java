@@ -0,0 +1,144 @@
+package ee.graph.swipeviewadapter;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+
+/**
+ * Drives a full down/move/up gesture through {@link SwipeViewTouchListener} and checks that no
+ * event allocates once the listener and the row are warmed up.
+ */
+@SuppressWarnings("deprecation")
+public class SwipeViewTouchListenerAllocationTest extends AndroidTestCase {
+    private static final int
+            WIDTH = 480,
+            HEIGHT = 800,
+            ROW_HEIGHT = 120,
+            MOVE_COUNT = 20;
+
+    private ListView mListView;
+    private SwipeViewTouchListener mTouchListener;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mListView = new ListView(getContext());
+        SwipeViewAdapter adapter = new SwipeViewAdapter(new RowAdapter());
+        adapter.setListView(mListView)
+                .setSwipeActionListener(new ActionListener())
+                .addBackground(SwipeDirections.DIRECTION_NORMAL_RIGHT, android.R.layout.simple_list_item_1);
+        mListView.setAdapter(adapter);
+        mListView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mListView.layout(0, 0, WIDTH, HEIGHT);
+        mTouchListener = adapter.getTouchListener();
+    }
+
+    public void testGestureDoesNotAllocate() {
+        MotionEvent[] warmUp = obtainGesture();
+        MotionEvent[] gesture = obtainGesture();
+
+        // The first gesture loads the backgrounds of the row and fills the caches
+        for (MotionEvent event : warmUp)
+            mTouchListener.onTouch(mListView, event);
+
+        Debug.startAllocCounting();
+        try {
+            for (int i = 0; i < gesture.length; i++) {
+                Debug.resetThreadAllocCount();
+                mTouchListener.onTouch(mListView, gesture[i]);
+                int allocations = Debug.getThreadAllocCount();
+                assertEquals("Allocations for event " + i + " (action " + gesture[i].getActionMasked() + ")",
+                        0, allocations);
+            }
+        } finally {
+            Debug.stopAllocCounting();
+            recycle(warmUp);
+            recycle(gesture);
+        }
+    }
+
+    /**
+     * A slow swipe to the right that comes back to where the swipe started before the finger is
+     * lifted, so the row settles at translation 0 without animation.
+     */
+    private MotionEvent[] obtainGesture() {
+        MotionEvent[] events = new MotionEvent[MOVE_COUNT + 2];
+        long downTime = SystemClock.uptimeMillis();
+        float slop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+        float x = 20, y = ROW_HEIGHT / 2;
+        events[0] = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0);
+        for (int i = 1; i <= MOVE_COUNT; i++) {
+            float ramp = (i <= MOVE_COUNT / 2 ? i : MOVE_COUNT - i) / (MOVE_COUNT / 2f);
+            events[i] = MotionEvent.obtain(downTime, downTime + i * 16, MotionEvent.ACTION_MOVE, x + slop + ramp * WIDTH / 5f, y, 0);
+        }
+        events[MOVE_COUNT + 1] = MotionEvent.obtain(downTime, downTime + (MOVE_COUNT + 1) * 16, MotionEvent.ACTION_UP, x + slop, y, 0);
+        return events;
+    }
+
+    private static void recycle(MotionEvent[] events) {
+        for (MotionEvent event : events)
+            event.recycle();
+    }
+
+    private class RowAdapter extends BaseAdapter {
+        @Override
+        public int getCount() {
+            return 100;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return position;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            View view = convertView;
+            if (view == null) {
+                view = new View(parent.getContext());
+                view.setMinimumHeight(ROW_HEIGHT);
+            }
+            return view;
+        }
+    }
+
+    private static class ActionListener implements SwipeViewAdapter.SwipeActionListener {
+        @Override
+        public boolean hasActions(int position) {
+            return true;
+        }
+
+        @Override
+        public void onSwipeToDismiss(int position, int direction) {
+        }
+
+        @Override
+        public void onSwipeNormal(int position, int direction) {
+        }
+
+        @Override
+        public void onScrollStateChanged(AbsListView absListView, int scrollState) {
+        }
+
+        @Override
+        public void onScroll(AbsListView absListView, int i, int i1, int i2) {
+        }
+
+        @Override
+        public void onSliding(SwipeViewGroup swipeViewGroup, int position) {
+        }
+    }
+}
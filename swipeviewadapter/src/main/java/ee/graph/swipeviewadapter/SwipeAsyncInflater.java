@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+
+/**
+ * Inflates background layouts on a worker thread and hands them back on the main thread.
+ *
+ * All instances share a single worker thread. A layout that can't be inflated off the main thread
+ * (for example because one of its views creates a Handler) is inflated again on the main thread,
+ * so the callback always gets a view.
+ */
+public class SwipeAsyncInflater {
+    private static final String TAG = SwipeAsyncInflater.class.getName();
+
+    private static Handler sWorkerHandler;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private LayoutInflater mInflater;
+
+    public interface OnInflateFinished {
+        /**
+         * Called on the main thread once the layout is inflated
+         *
+         * @param background the inflated view, without parent
+         * @param layoutId the resource Id it was inflated from
+         */
+        void onInflateFinished(View background, int layoutId);
+    }
+
+    /**
+     * Inflate a layout on the worker thread. Must be called from the main thread.
+     *
+     * @param context the context used to inflate the layout
+     * @param layoutId the resource Id of the layout
+     * @param callback called on the main thread with the inflated view
+     */
+    public void inflate(final Context context, final int layoutId, final OnInflateFinished callback) {
+        if (mInflater == null || mInflater.getContext() != context) {
+            // LayoutInflater is not thread safe, the worker gets its own instance
+            mInflater = LayoutInflater.from(context).cloneInContext(context);
+        }
+        final LayoutInflater inflater = mInflater;
+        getWorkerHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                View background = null;
+                try {
+                    background = inflater.inflate(layoutId, null, false);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Failed to inflate the background off the main thread, falling back to the main thread", e);
+                }
+                final View result = background;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        View view = result;
+                        if (view == null)
+                            view = LayoutInflater.from(context).inflate(layoutId, null, false);
+                        callback.onInflateFinished(view, layoutId);
+                    }
+                });
+            }
+        });
+    }
+
+    private static synchronized Handler getWorkerHandler() {
+        if (sWorkerHandler == null) {
+            HandlerThread thread = new HandlerThread("SwipeAsyncInflater");
+            thread.start();
+            sWorkerHandler = new Handler(thread.getLooper());
+        }
+        return sWorkerHandler;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import android.graphics.Canvas;
+
+/**
+ * A background that {@link SwipeViewGroup} draws itself, in the area the swipe reveals, instead
+ * of a view added to the row. It adds no child view, so it is never measured or laid out and
+ * only costs a draw call per frame of the swipe. Fits backgrounds made of a color, an icon and a
+ * label, see {@link SwipeIconBackground}.
+ *
+ * The same drawer can be shared by all the rows of a list: it is given everything it needs on
+ * each call. It is called on the main thread from the draw pass and should not allocate.
+ */
+public interface SwipeBackgroundDrawer {
+    /**
+     * Draw the background in the revealed area. The area is in the coordinates of the row, it
+     * lies outside of the bounds of the row when the row itself slides, see
+     * {@link SwipeViewGroup#setFixedBackground(boolean)}.
+     *
+     * @param canvas the canvas the row draws to
+     * @param direction the direction of the swipe, from SwipeDirections
+     * @param left the left edge of the revealed area
+     * @param top the top edge of the revealed area
+     * @param right the right edge of the revealed area
+     * @param bottom the bottom edge of the revealed area
+     * @param swipeRatio between 0 and 1, the ratio view backgrounds fade in with
+     */
+    void draw(Canvas canvas, int direction, int left, int top, int right, int bottom, float swipeRatio);
+}
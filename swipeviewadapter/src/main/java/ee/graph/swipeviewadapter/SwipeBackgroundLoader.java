@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import android.content.Context;
+import android.util.SparseIntArray;
+import android.view.View;
+
+/**
+ * Gets the background views of the rows of an adapter: takes them out of the
+ * {@link SwipeBackgroundPool}, inflates them, on a worker thread with a placeholder in the
+ * meantime in async inflation mode, and fills the pool while the list is idle.
+ *
+ * Shared by {@link SwipeViewAdapter} and {@link SwipeRecyclerAdapter}, which create the
+ * placeholders and bind the backgrounds inflated on the worker thread.
+ */
+class SwipeBackgroundLoader {
+    interface Callbacks {
+        /**
+         * @see SwipeViewAdapter#onCreatePlaceholder(int, SwipeViewGroup)
+         */
+        View onCreatePlaceholder(int direction, SwipeViewGroup parent);
+
+        /**
+         * Called once a background inflated on the worker thread replaced its placeholder
+         *
+         * @param direction the direction of the background
+         * @param position the position the row is bound to
+         * @param background the background view, added to the row
+         * @param parent the row
+         */
+        void onBackgroundInflated(int direction, int position, View background, SwipeViewGroup parent);
+    }
+
+    private final Callbacks mCallbacks;
+    private SwipeBackgroundPool mBackgroundPool = new SwipeBackgroundPool();
+    private SwipeMetricsListener mMetricsListener;
+    private SwipeAsyncInflater mAsyncInflater;
+
+    SwipeBackgroundLoader(Callbacks callbacks) {
+        mCallbacks = callbacks;
+    }
+
+    void setBackgroundPool(SwipeBackgroundPool backgroundPool) {
+        this.mBackgroundPool = backgroundPool;
+    }
+
+    SwipeBackgroundPool getBackgroundPool() {
+        return mBackgroundPool;
+    }
+
+    void setMetricsListener(SwipeMetricsListener metricsListener) {
+        this.mMetricsListener = metricsListener;
+    }
+
+    /**
+     * @return a background of the pool, or null if the pool has none of that layout
+     */
+    View poll(int layoutId) {
+        return mBackgroundPool.poll(layoutId);
+    }
+
+    /**
+     * @return a background of the pool, or a new one if the pool has none of that layout
+     */
+    View acquire(Context context, int layoutId) {
+        View background = mBackgroundPool.poll(layoutId);
+        return background != null ? background : inflate(context, layoutId);
+    }
+
+    View inflate(Context context, int layoutId) {
+        if (mMetricsListener == null)
+            return View.inflate(context, layoutId, null);
+        long start = System.nanoTime();
+        View background = View.inflate(context, layoutId, null);
+        mMetricsListener.onPhase(SwipeMetrics.PHASE_INFLATE, System.nanoTime() - start);
+        return background;
+    }
+
+    /**
+     * Add a placeholder to the row and inflate the background on the worker thread. The
+     * background replaces the placeholder unless the row dropped it in the meantime.
+     */
+    void inflateAsync(final SwipeViewGroup output, final int direction, final int type, int layoutId) {
+        final View placeholder = mCallbacks.onCreatePlaceholder(direction, output);
+        if (mMetricsListener != null)
+            mMetricsListener.onPhase(SwipeMetrics.PHASE_ALLOCATION, 0);
+        output.addBackground(placeholder, direction, type);
+        output.setBackgroundPending(direction, true);
+        if (mAsyncInflater == null)
+            mAsyncInflater = new SwipeAsyncInflater();
+        mAsyncInflater.inflate(output.getContext(), layoutId, new SwipeAsyncInflater.OnInflateFinished() {
+            @Override
+            public void onInflateFinished(View background, int layoutId) {
+                // The row may have been recycled while the background was inflated
+                if (output.getBackground(direction) != placeholder) {
+                    mBackgroundPool.release(layoutId, background);
+                    return;
+                }
+                output.addBackground(background, direction, type, layoutId);
+                // Otherwise the row creates the background when it is bound again
+                int position = output.getBackgroundsPosition();
+                if (position != -1)
+                    mCallbacks.onBackgroundInflated(direction, position, background, output);
+                output.updateView();
+            }
+        });
+    }
+
+    /**
+     * Fill the background pool with one background, for the rows that are not created yet
+     *
+     * @param layoutIds the background layouts of the adapter, keyed by direction
+     * @param step the step number, counted from the first background of the pool
+     * @return false if the pool is full for every background layout
+     */
+    boolean prefetchPool(Context context, SparseIntArray layoutIds, int step) {
+        int maxSize = mBackgroundPool.getMaxSize();
+        int index = maxSize == 0 ? layoutIds.size() : step / maxSize;
+        if (index >= layoutIds.size())
+            return false;
+        int layoutId = layoutIds.valueAt(index);
+        if (mBackgroundPool.size(layoutId) < maxSize)
+            mBackgroundPool.release(layoutId, inflate(context, layoutId));
+        return true;
+    }
+}
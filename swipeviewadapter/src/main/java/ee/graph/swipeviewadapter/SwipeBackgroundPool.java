@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import android.content.Context;
+import android.util.SparseArray;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Pool of recycled background views, keyed by layout resource id.
+ *
+ * Rows give their backgrounds back to the pool when they are recycled, and the next row that
+ * slides takes one out instead of inflating the layout again. A pool can be shared by several
+ * adapters (for example the tabs of a ViewPager) as long as they run on the same UI thread.
+ */
+public class SwipeBackgroundPool {
+    public static final int DEFAULT_MAX_SIZE = 4;
+
+    private final SparseArray<ArrayList<View>> mScrap = new SparseArray<>();
+    private int mMaxSize;
+
+    public SwipeBackgroundPool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize the maximum number of idle views kept for each layout id
+     */
+    public SwipeBackgroundPool(int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * Set the maximum number of idle views kept for each layout id. Views above that limit are
+     * dropped.
+     *
+     * @param maxSize number of views, 0 disables pooling
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeBackgroundPool setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Must be a positive int");
+        }
+        mMaxSize = maxSize;
+        for (int i = 0; i < mScrap.size(); i++) {
+            ArrayList<View> scrap = mScrap.valueAt(i);
+            while (scrap.size() > maxSize)
+                scrap.remove(scrap.size() - 1);
+        }
+        return this;
+    }
+
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Take a background out of the pool, or inflate a new one if the pool is empty
+     *
+     * @param context the context used to inflate the layout
+     * @param layoutId the resource Id of the background
+     * @return a background view without parent
+     */
+    public View acquire(Context context, int layoutId) {
+        View background = poll(layoutId);
+        return background != null ? background : View.inflate(context, layoutId, null);
+    }
+
+    /**
+     * Take a background out of the pool without inflating
+     *
+     * @param layoutId the resource Id of the background
+     * @return a background view without parent, or null if the pool is empty
+     */
+    public View poll(int layoutId) {
+        ArrayList<View> scrap = mScrap.get(layoutId);
+        if (scrap != null && !scrap.isEmpty())
+            return scrap.remove(scrap.size() - 1);
+        return null;
+    }
+
+    /**
+     * Give a background back to the pool. The view must already be removed from its parent.
+     *
+     * @param layoutId the resource Id the background was inflated from
+     * @param background the background view
+     */
+    public void release(int layoutId, View background) {
+        if (background == null || background.getParent() != null)
+            return;
+        ArrayList<View> scrap = mScrap.get(layoutId);
+        if (scrap == null) {
+            scrap = new ArrayList<>(mMaxSize);
+            mScrap.put(layoutId, scrap);
+        }
+        if (scrap.size() < mMaxSize)
+            scrap.add(background);
+    }
+
+    /**
+     * @param layoutId the resource Id of the background
+     * @return the number of idle views for that layout
+     */
+    public int size(int layoutId) {
+        ArrayList<View> scrap = mScrap.get(layoutId);
+        return scrap == null ? 0 : scrap.size();
+    }
+
+    public void clear() {
+        mScrap.clear();
+    }
+}
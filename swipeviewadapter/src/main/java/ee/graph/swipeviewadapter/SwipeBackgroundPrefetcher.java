@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+/**
+ * Runs background preparation work while the list is idle, in slices that fit in a time budget
+ * per frame.
+ *
+ * The work is split in numbered steps by the {@link PrefetchStep} callback. Each frame runs steps
+ * until the budget is spent, then the rest is posted to the next frame. A step is never
+ * interrupted, so a single slow step (inflating a large layout) can still overrun the budget.
+ */
+public class SwipeBackgroundPrefetcher implements Runnable {
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 4000000L;
+
+    private final View mHost;
+    private final PrefetchStep mPrefetchStep;
+    private long mFrameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+    private int mStep = 0;
+    private boolean mIsRunning = false;
+
+    public interface PrefetchStep {
+        /**
+         * Run one small unit of prefetch work
+         *
+         * @param step the number of steps run since the prefetch started
+         * @return false if there is nothing left to prefetch
+         */
+        boolean onPrefetchStep(int step);
+    }
+
+    /**
+     * @param host the view the frames are posted to, usually the list
+     * @param prefetchStep the work to run
+     */
+    public SwipeBackgroundPrefetcher(View host, PrefetchStep prefetchStep) {
+        this.mHost = host;
+        this.mPrefetchStep = prefetchStep;
+    }
+
+    /**
+     * @param frameBudgetNanos the time spent on prefetch work per frame, in nanoseconds
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeBackgroundPrefetcher setFrameBudget(long frameBudgetNanos) {
+        if (frameBudgetNanos <= 0) {
+            throw new IllegalArgumentException("Must be a strictly positive long");
+        }
+        this.mFrameBudgetNanos = frameBudgetNanos;
+        return this;
+    }
+
+    /**
+     * Start prefetching from the first step on the next frame
+     */
+    public void start() {
+        mStep = 0;
+        if (!mIsRunning) {
+            mIsRunning = true;
+            ViewCompat.postOnAnimation(mHost, this);
+        }
+    }
+
+    public void stop() {
+        if (mIsRunning) {
+            mIsRunning = false;
+            mHost.removeCallbacks(this);
+        }
+    }
+
+    public boolean isRunning() {
+        return mIsRunning;
+    }
+
+    @Override
+    public void run() {
+        if (!mIsRunning)
+            return;
+        long deadline = System.nanoTime() + mFrameBudgetNanos;
+        do {
+            if (!mPrefetchStep.onPrefetchStep(mStep++)) {
+                mIsRunning = false;
+                return;
+            }
+        } while (System.nanoTime() < deadline);
+        ViewCompat.postOnAnimation(mHost, this);
+    }
+}
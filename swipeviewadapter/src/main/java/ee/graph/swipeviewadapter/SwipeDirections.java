@@ -16,9 +16,6 @@
 
 package ee.graph.swipeviewadapter;
 
-import java.util.Arrays;
-import java.util.List;
-
 /**
  * Class containing a set of constant directions used throughout the package
  *
@@ -32,13 +29,37 @@ public class SwipeDirections {
     public static final int DIRECTION_FAR_RIGHT = 2;
     public static final int DIRECTION_NEUTRAL = 0;
 
-    static List<Integer> getAllDirections(){
-        return Arrays.asList(
-                DIRECTION_FAR_LEFT,
-                DIRECTION_FAR_RIGHT,
-                DIRECTION_NEUTRAL,
-                DIRECTION_NORMAL_LEFT,
-                DIRECTION_NORMAL_RIGHT
-        );
+    /**
+     * Number of directions: per direction state is kept in arrays of this size, indexed with
+     * {@link #indexOf(int)}
+     */
+    static final int DIRECTION_COUNT = DIRECTION_FAR_RIGHT - DIRECTION_FAR_LEFT + 1;
+
+    static boolean isDirection(int direction) {
+        return direction >= DIRECTION_FAR_LEFT && direction <= DIRECTION_FAR_RIGHT;
+    }
+
+    /**
+     * @param direction one of the direction constants
+     * @return the index of the direction, between 0 and {@link #DIRECTION_COUNT} - 1
+     */
+    static int indexOf(int direction) {
+        return direction - DIRECTION_FAR_LEFT;
+    }
+
+    /**
+     * @param index an index between 0 and {@link #DIRECTION_COUNT} - 1
+     * @return the direction with that index
+     */
+    static int directionAt(int index) {
+        return index + DIRECTION_FAR_LEFT;
+    }
+
+    /**
+     * @param direction one of the direction constants
+     * @return the bit of the direction in a direction bitmask
+     */
+    static int maskOf(int direction) {
+        return 1 << indexOf(direction);
     }
 }
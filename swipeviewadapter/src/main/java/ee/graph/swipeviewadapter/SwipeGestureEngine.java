@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+/**
+ * The gesture rules of a swipe, without the views: the touch slop, the normal and far swipe
+ * thresholds, the direction of the swipe, the fling classification and the choice between a
+ * dismiss, a slide in and a slide back when the finger is released.
+ *
+ * It takes the raw coordinates and velocities of the events and returns what the list should
+ * do with them, so it doesn't depend on the Android framework. {@link SwipeViewTouchListener}
+ * and {@link SwipeRecyclerTouchListener} feed it their touch events, other list backends can do
+ * the same. It doesn't allocate.
+ *
+ * Not thread safe, a gesture is fed from a single thread.
+ */
+public final class SwipeGestureEngine {
+    /**
+     * The finger hasn't moved past the touch slop horizontally yet, or isn't down
+     */
+    public static final int MOVE_NONE = 0;
+    /**
+     * The finger just moved past the touch slop horizontally, the swipe starts and the list
+     * should stop handling the gesture
+     */
+    public static final int MOVE_START = 1;
+    /**
+     * The row follows the finger, to {@link #getTranslationX()} in {@link #getDirection()}
+     */
+    public static final int MOVE_SLIDE = 2;
+    /**
+     * The row is swiped in a direction that is not enabled, it stays where it is
+     */
+    public static final int MOVE_DISABLED = 3;
+
+    /**
+     * Nothing to do, the finger wasn't down or the swipe ended in a direction that is not enabled
+     */
+    public static final int UP_NONE = 0;
+    /**
+     * The row slides back to its place
+     */
+    public static final int UP_CANCEL = 1;
+    /**
+     * The row slides in, for a normal swipe or a swipe with a background that doesn't dismiss
+     */
+    public static final int UP_SLIDE_IN = 2;
+    /**
+     * The row is dismissed to the left
+     */
+    public static final int UP_DISMISS_LEFT = 3;
+    /**
+     * The row is dismissed to the right
+     */
+    public static final int UP_DISMISS_RIGHT = 4;
+
+    private float
+            mFarSwipeFraction = 0.5f,
+            mNormalSwipeFraction = 0.25f,
+            mDownX,
+            mDownY,
+            mLatestDeltaX = 0,
+            mTranslationX = 0;
+
+    private boolean
+            mIsDown = false,
+            mIsMoving = false,
+            mIsFar = false;
+
+    private int
+            mViewWidth = 1, // 1 and not 0 to prevent dividing by zero
+            mSlop,
+            mMinFlingVelocity,
+            mMaxFlingVelocity,
+            mSwipingSlop,
+            mDirection = SwipeDirections.DIRECTION_NEUTRAL,
+            mDirectionTemporary = SwipeDirections.DIRECTION_NEUTRAL,
+            mEnabledDirections = 0; // bitmask of SwipeDirections.maskOf(direction)
+
+    /**
+     * @param slop the distance in pixels the finger moves horizontally before a swipe starts
+     * @param minFlingVelocity the minimum velocity of a fling, in pixels per second
+     * @param maxFlingVelocity the maximum velocity of a fling, in pixels per second
+     */
+    public SwipeGestureEngine(int slop, int minFlingVelocity, int maxFlingVelocity) {
+        mSlop = slop;
+        mMinFlingVelocity = minFlingVelocity;
+        mMaxFlingVelocity = maxFlingVelocity;
+    }
+
+    /**
+     * @param viewWidth the width of the rows in pixels, that the swipe fractions are relative to
+     */
+    public void setViewWidth(int viewWidth) {
+        mViewWidth = viewWidth;
+    }
+
+    public int getViewWidth() {
+        return mViewWidth;
+    }
+
+    /**
+     * @param farSwipeFraction float between 0 and 1, should be equal to or greater than normalSwipeFraction
+     */
+    public void setFarSwipeFraction(float farSwipeFraction) {
+        mFarSwipeFraction = farSwipeFraction;
+    }
+
+    /**
+     * @param normalSwipeFraction float between 0 and 1, should be equal to or less than farSwipeFraction
+     */
+    public void setNormalSwipeFraction(float normalSwipeFraction) {
+        mNormalSwipeFraction = normalSwipeFraction;
+    }
+
+    /**
+     * Enable a swipe direction (none are enabled by default)
+     *
+     * @param direction Integer const from SwipeDirections
+     */
+    public void addEnabledDirection(int direction) {
+        mEnabledDirections |= SwipeDirections.maskOf(direction);
+    }
+
+    public boolean isEnabledDirection(int direction) {
+        return (mEnabledDirections & SwipeDirections.maskOf(direction)) != 0;
+    }
+
+    /**
+     * Start a gesture, on a row that can be swiped
+     */
+    public void onDown(float rawX, float rawY) {
+        reset();
+        mIsDown = true;
+        mDownX = rawX;
+        mDownY = rawY;
+    }
+
+    /**
+     * @return one of the MOVE_ constants
+     */
+    public int onMove(float rawX, float rawY) {
+        if (!mIsDown)
+            return MOVE_NONE;
+
+        float deltaX = rawX - mDownX;
+        float deltaY = rawY - mDownY;
+        if (mIsMoving) {
+            mIsFar = mDirection*deltaX >= 0 && Math.abs(deltaX) > mViewWidth*mFarSwipeFraction;
+            mDirection = SwipeMath.getDirection(mIsFar, deltaX > 0);
+            mDirectionTemporary = SwipeMath.getDirection(mIsFar, deltaX - mLatestDeltaX > 0);
+            mLatestDeltaX = deltaX;
+            if (!isEnabledDirection(mDirection))
+                return MOVE_DISABLED;
+            mTranslationX = deltaX - mSwipingSlop;
+            return MOVE_SLIDE;
+        } else if (Math.abs(deltaX) > mSlop && Math.abs(deltaY) < Math.abs(deltaX)) {
+            mIsMoving = true;
+            mSwipingSlop = (deltaX > 0 ? mSlop : -mSlop);
+            return MOVE_START;
+        }
+        return MOVE_NONE;
+    }
+
+    /**
+     * End the gesture. Call {@link #reset()} once the decision is carried out, the direction of
+     * the swipe is kept until then.
+     *
+     * @param rawX the x coordinate of the finger when it was released
+     * @param velocityX the horizontal velocity of the finger, in pixels per second
+     * @param velocityY the vertical velocity of the finger, in pixels per second
+     * @param canDismiss whether the background of {@link #getDirection()} dismisses the row
+     * @param canSlideIn whether rows can slide in
+     * @return one of the UP_ constants
+     */
+    public int onUp(float rawX, float velocityX, float velocityY, boolean canDismiss, boolean canSlideIn) {
+        if (!mIsDown || !isEnabledDirection(mDirection))
+            return UP_NONE;
+
+        float deltaX = rawX - mDownX;
+        boolean isSwipe = Math.abs(deltaX) > (mViewWidth * mNormalSwipeFraction);
+        boolean validate = mDirection == mDirectionTemporary && mIsMoving && (isSwipe || isFling(velocityX, velocityY));
+        if (validate && canDismiss) {
+            boolean dismissRight = isSwipe ? deltaX > 0 : velocityX > 0;
+            return dismissRight ? UP_DISMISS_RIGHT : UP_DISMISS_LEFT;
+        } else if (validate && canSlideIn) {
+            return UP_SLIDE_IN;
+        }
+        return UP_CANCEL;
+    }
+
+    private boolean isFling(float velocityX, float velocityY) {
+        float absVelocityX = Math.abs(velocityX);
+        float absVelocityY = Math.abs(velocityY);
+        return mMinFlingVelocity <= absVelocityX && absVelocityX <= mMaxFlingVelocity && absVelocityY < absVelocityX;
+    }
+
+    /**
+     * Forget the current gesture
+     */
+    public void reset() {
+        mDownX = 0;
+        mDownY = 0;
+        mLatestDeltaX = 0;
+        mTranslationX = 0;
+        mDirection = SwipeDirections.DIRECTION_NEUTRAL;
+        mDirectionTemporary = SwipeDirections.DIRECTION_NEUTRAL;
+        mIsMoving = false;
+        mIsFar = false;
+        mIsDown = false;
+    }
+
+    public boolean isDown() {
+        return mIsDown;
+    }
+
+    public boolean isMoving() {
+        return mIsMoving;
+    }
+
+    public boolean isFar() {
+        return mIsFar;
+    }
+
+    /**
+     * @return the direction of the current swipe, DIRECTION_NEUTRAL before it starts
+     */
+    public int getDirection() {
+        return mDirection;
+    }
+
+    /**
+     * @return the translation of the row for the latest MOVE_SLIDE
+     */
+    public float getTranslationX() {
+        return mTranslationX;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+
+/**
+ * A {@link SwipeBackgroundDrawer} that fills the revealed area with a color and shows an icon and
+ * a label next to the edge of the screen the swipe starts from. The icon and the label fade in
+ * with the swipe.
+ *
+ * Sizes are in pixels. Only one instance per direction is needed for the whole list.
+ */
+public class SwipeIconBackground implements SwipeBackgroundDrawer {
+    private final Paint
+            mColorPaint = new Paint(),
+            mLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private Drawable mIcon;
+    private CharSequence mLabel;
+    private float mLabelWidth;
+    private int mPadding = 0;
+
+    /**
+     * @param color the color of the background, as an ARGB int
+     */
+    public SwipeIconBackground(int color) {
+        mColorPaint.setColor(color);
+        mLabelPaint.setColor(0xFFFFFFFF);
+    }
+
+    /**
+     * @param icon the icon, drawn at its intrinsic size, or null for none
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeIconBackground setIcon(Drawable icon) {
+        // Fading the icon must not change other users of the same drawable
+        this.mIcon = icon == null ? null : icon.mutate();
+        return this;
+    }
+
+    /**
+     * @param label the label, or null for none
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeIconBackground setLabel(CharSequence label) {
+        this.mLabel = label;
+        measureLabel();
+        return this;
+    }
+
+    /**
+     * @param color the color of the label, as an ARGB int, white by default
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeIconBackground setLabelColor(int color) {
+        mLabelPaint.setColor(color);
+        return this;
+    }
+
+    /**
+     * @param textSize the text size of the label, in pixels
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeIconBackground setLabelSize(float textSize) {
+        if (textSize <= 0) {
+            throw new IllegalArgumentException("Must be a positive float");
+        }
+        mLabelPaint.setTextSize(textSize);
+        measureLabel();
+        return this;
+    }
+
+    /**
+     * @param padding the space between the edge of the screen and the icon, and between the
+     *                icon and the label, in pixels
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeIconBackground setPadding(int padding) {
+        if (padding < 0) {
+            throw new IllegalArgumentException("Must be a positive int");
+        }
+        this.mPadding = padding;
+        return this;
+    }
+
+    private void measureLabel() {
+        mLabelWidth = mLabel == null ? 0 : mLabelPaint.measureText(mLabel, 0, mLabel.length());
+    }
+
+    @Override
+    public void draw(Canvas canvas, int direction, int left, int top, int right, int bottom, float swipeRatio) {
+        int saveCount = canvas.save();
+        canvas.clipRect(left, top, right, bottom);
+        canvas.drawRect(left, top, right, bottom, mColorPaint);
+
+        // Right swipes reveal the left of the screen first, left swipes the right
+        boolean fromLeft = direction > 0;
+        int alpha = (int) (255 * swipeRatio);
+        int centerY = (top + bottom) / 2;
+        float x = fromLeft ? left + mPadding : right - mPadding;
+        if (mIcon != null) {
+            int iconWidth = mIcon.getIntrinsicWidth();
+            int iconHeight = mIcon.getIntrinsicHeight();
+            int iconLeft = fromLeft ? (int) x : (int) x - iconWidth;
+            mIcon.setBounds(iconLeft, centerY - iconHeight / 2, iconLeft + iconWidth, centerY - iconHeight / 2 + iconHeight);
+            mIcon.setAlpha(alpha);
+            mIcon.draw(canvas);
+            x += fromLeft ? iconWidth + mPadding : -iconWidth - mPadding;
+        }
+        if (mLabel != null) {
+            int labelColor = mLabelPaint.getColor();
+            mLabelPaint.setAlpha(Math.round(alpha * (labelColor >>> 24) / 255.f));
+            float baseline = centerY - (mLabelPaint.ascent() + mLabelPaint.descent()) / 2;
+            canvas.drawText(mLabel, 0, mLabel.length(), fromLeft ? x : x - mLabelWidth, baseline, mLabelPaint);
+            mLabelPaint.setColor(labelColor);
+        }
+        canvas.restoreToCount(saveCount);
+    }
+}
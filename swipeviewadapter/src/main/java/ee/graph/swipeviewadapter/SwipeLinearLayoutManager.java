@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import android.content.Context;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * LinearLayoutManager that lays out rows ahead of the visible area, so the ViewHolders of the
+ * next rows are created and bound before they scroll into view.
+ */
+public class SwipeLinearLayoutManager extends LinearLayoutManager {
+    private int mExtraLayoutSpace = -1;
+
+    public SwipeLinearLayoutManager(Context context) {
+        super(context);
+    }
+
+    public SwipeLinearLayoutManager(Context context, int orientation, boolean reverseLayout) {
+        super(context, orientation, reverseLayout);
+    }
+
+    /**
+     * Set how many pixels should be laid out beyond the visible area
+     *
+     * @param extraLayoutSpace extra space in pixels, or -1 to use the LinearLayoutManager default
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeLinearLayoutManager setExtraLayoutSpace(int extraLayoutSpace) {
+        this.mExtraLayoutSpace = extraLayoutSpace;
+        return this;
+    }
+
+    @Override
+    protected int getExtraLayoutSpace(RecyclerView.State state) {
+        return mExtraLayoutSpace >= 0 ? mExtraLayoutSpace : super.getExtraLayoutSpace(state);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+/**
+ * Swipe computations that don't depend on the Android framework
+ */
+public final class SwipeMath {
+    /**
+     * Shortest settle animation, in milliseconds: below a few frames the row just jumps
+     */
+    public static final int MIN_SETTLE_DURATION = 48;
+
+    private SwipeMath() {
+    }
+
+    /**
+     * Vertical bounds of the rows of a list, in layout order
+     */
+    public interface RowBounds {
+        int getRowTop(int index);
+
+        int getRowBottom(int index);
+    }
+
+    /**
+     * @param isFarSwipe true if the row went past the far swipe threshold
+     * @param isRight true if the row moves to the right
+     * @return the matching direction constant of {@link SwipeDirections}
+     */
+    public static int getDirection(boolean isFarSwipe, boolean isRight) {
+        return isFarSwipe ?
+                (isRight ? SwipeDirections.DIRECTION_FAR_RIGHT     : SwipeDirections.DIRECTION_FAR_LEFT):
+                (isRight ? SwipeDirections.DIRECTION_NORMAL_RIGHT  : SwipeDirections.DIRECTION_NORMAL_LEFT);
+    }
+
+    /**
+     * @param translation the translation of the row, signed
+     * @param distance the translation at which the ratio reaches 1
+     * @return how far the row moved towards distance, between 0 and 1
+     */
+    public static float getSwipeRatio(float translation, float distance) {
+        float ratio = Math.abs(translation) / distance;
+        return ratio > 1.f ? 1.f : ratio;
+    }
+
+    /**
+     * @param start the value at ratio 0
+     * @param end the value at ratio 1
+     * @param ratio the ratio between 0 and 1
+     * @return the value linearly interpolated between start and end, truncated
+     */
+    public static int getCurrentValueFromRatio(int start, int end, float ratio) {
+        return (int) (start + (end - start) * ratio);
+    }
+
+    /**
+     * Duration of a settle animation that starts at the release velocity of the finger and
+     * decelerates to a stop at the target, as a DecelerateInterpolator with a factor of 1 does.
+     * Its initial speed is twice the average speed, so it lasts 2 * distance / velocity.
+     *
+     * @param distance the distance to the target, in pixels, signed
+     * @param velocity the release velocity, in pixels per second, signed
+     * @param maxDuration the duration used when the velocity is too slow or points away from the
+     *                    target, in milliseconds
+     * @return the duration of the animation in milliseconds, between MIN_SETTLE_DURATION and
+     * maxDuration
+     */
+    public static int getSettleDuration(float distance, float velocity, int maxDuration) {
+        if (distance == 0 || velocity == 0 || (distance > 0) != (velocity > 0))
+            return maxDuration;
+        float duration = 2000.f * distance / velocity;
+        if (duration >= maxDuration)
+            return maxDuration;
+        return duration < MIN_SETTLE_DURATION ? Math.min(MIN_SETTLE_DURATION, maxDuration) : (int) duration;
+    }
+
+    /**
+     * Find the row that contains a vertical position with a binary search. The rows must be
+     * ordered by their top and must not overlap, as the children of a list are.
+     *
+     * @param rows the bounds of the rows
+     * @param count the number of rows
+     * @param y the position to look for, in the coordinates of the rows
+     * @return the index of the row whose top is at or above y and whose bottom is below y, or -1
+     * if y falls before the first row, after the last one or between two rows
+     */
+    public static int findRowAt(RowBounds rows, int count, int y) {
+        int low = 0, high = count - 1, found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (rows.getRowTop(middle) <= y) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (found != -1 && y < rows.getRowBottom(found))
+            return found;
+        return -1;
+    }
+}
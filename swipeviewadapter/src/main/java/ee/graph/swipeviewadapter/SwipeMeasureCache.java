@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import java.util.Arrays;
+
+/**
+ * Cache of measured background heights, keyed by layout id, width measure spec and a content key
+ * supplied by the app.
+ *
+ * Two backgrounds with the same three keys are expected to have the same height, so only the
+ * first one runs a measure pass. The content key lets the app tell apart backgrounds of the same
+ * layout whose height depends on the data they show: rows that use the same key share a height.
+ *
+ * The cache is a fixed size open addressing table and does not allocate once created. When it is
+ * full, it is cleared and starts over.
+ */
+public class SwipeMeasureCache {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static final int NO_HEIGHT = -1;
+
+    private final int[]
+            mLayoutIds,
+            mWidthSpecs,
+            mHeights;
+    private final long[] mContentKeys;
+    private final int mMask, mMaxSize;
+    private int mSize = 0;
+
+    public SwipeMeasureCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of heights kept before the cache starts over, rounded up to a
+     *                 power of two
+     */
+    public SwipeMeasureCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Must be a strictly positive int");
+        }
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        mLayoutIds = new int[tableSize];
+        mWidthSpecs = new int[tableSize];
+        mHeights = new int[tableSize];
+        mContentKeys = new long[tableSize];
+        mMask = tableSize - 1;
+        mMaxSize = tableSize / 2;
+        Arrays.fill(mHeights, NO_HEIGHT);
+    }
+
+    /**
+     * @param layoutId the resource Id of the background
+     * @param widthSpec the width measure spec the background is measured with
+     * @param contentKey the key of the content the background shows
+     * @return the cached height, or -1 if there is none
+     */
+    public int get(int layoutId, int widthSpec, long contentKey) {
+        int i = hash(layoutId, widthSpec, contentKey) & mMask;
+        while (mHeights[i] != NO_HEIGHT) {
+            if (mLayoutIds[i] == layoutId && mWidthSpecs[i] == widthSpec && mContentKeys[i] == contentKey)
+                return mHeights[i];
+            i = (i + 1) & mMask;
+        }
+        return NO_HEIGHT;
+    }
+
+    /**
+     * @param layoutId the resource Id of the background
+     * @param widthSpec the width measure spec the background was measured with
+     * @param contentKey the key of the content the background shows
+     * @param height the measured height
+     */
+    public void put(int layoutId, int widthSpec, long contentKey, int height) {
+        if (height < 0) {
+            throw new IllegalArgumentException("Must be a positive int");
+        }
+        int i = hash(layoutId, widthSpec, contentKey) & mMask;
+        while (mHeights[i] != NO_HEIGHT) {
+            if (mLayoutIds[i] == layoutId && mWidthSpecs[i] == widthSpec && mContentKeys[i] == contentKey) {
+                mHeights[i] = height;
+                return;
+            }
+            i = (i + 1) & mMask;
+        }
+        if (mSize == mMaxSize) {
+            clear();
+            i = hash(layoutId, widthSpec, contentKey) & mMask;
+        }
+        mLayoutIds[i] = layoutId;
+        mWidthSpecs[i] = widthSpec;
+        mContentKeys[i] = contentKey;
+        mHeights[i] = height;
+        mSize++;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        Arrays.fill(mHeights, NO_HEIGHT);
+        mSize = 0;
+    }
+
+    private static int hash(int layoutId, int widthSpec, long contentKey) {
+        int h = layoutId;
+        h = 31 * h + widthSpec;
+        h = 31 * h + (int) (contentKey ^ (contentKey >>> 32));
+        return h ^ (h >>> 16);
+    }
+}
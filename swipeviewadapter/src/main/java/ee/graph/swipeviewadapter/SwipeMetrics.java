@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import java.util.Arrays;
+
+/**
+ * Counters and latency histograms of the phases reported to a {@link SwipeMetricsListener}.
+ *
+ * Recording a phase is a few array writes and doesn't allocate, so it can stay on in release
+ * builds. The histograms have power of two buckets: bucket 0 counts the phases that took less
+ * than a microsecond, bucket i the ones that took from 2^(i-1) to 2^i microseconds, and the last
+ * bucket everything longer.
+ *
+ * Not thread safe: record, read and reset on the main thread, for example by reading the values
+ * into telemetry and calling {@link #reset()} every few minutes.
+ */
+public class SwipeMetrics implements SwipeMetricsListener {
+    /**
+     * SwipeViewAdapter.getView() for rows that can be swiped, SwipeRecyclerAdapter.onBindViewHolder()
+     */
+    public static final int PHASE_BIND = 0;
+    /**
+     * loadBackgrounds() of the adapters, when the backgrounds of a row are not bound yet
+     */
+    public static final int PHASE_LOAD_BACKGROUNDS = 1;
+    /**
+     * Inflation of a background on the main thread, when the pool has none to give
+     */
+    public static final int PHASE_INFLATE = 2;
+    /**
+     * Measure of a background or of the content of a row
+     */
+    public static final int PHASE_MEASURE = 3;
+    /**
+     * A row asking for a layout pass, only counted
+     */
+    public static final int PHASE_LAYOUT_REQUEST = 4;
+    /**
+     * SwipeViewGroup.updateView(), run for each frame of a slide or an animation
+     */
+    public static final int PHASE_FRAME = 5;
+    /**
+     * Delivery of a dismiss, or of a batch of dismisses, to the app
+     */
+    public static final int PHASE_DISMISS = 6;
+    /**
+     * An object the library creates while binding or sliding a row: a row, a listener, an
+     * animator or a placeholder, only counted. Unlike the allocation counters of the VM, it
+     * doesn't count what the framework allocates, so it is the same on every device and in tests.
+     */
+    public static final int PHASE_ALLOCATION = 7;
+
+    public static final int PHASE_COUNT = 8;
+    public static final int BUCKET_COUNT = 16;
+
+    private final long[]
+            mCounts = new long[PHASE_COUNT],
+            mTotalNanos = new long[PHASE_COUNT],
+            mMaxNanos = new long[PHASE_COUNT],
+            mBuckets = new long[PHASE_COUNT * BUCKET_COUNT];
+
+    @Override
+    public void onPhase(int phase, long durationNanos) {
+        mCounts[phase]++;
+        mTotalNanos[phase] += durationNanos;
+        if (durationNanos > mMaxNanos[phase])
+            mMaxNanos[phase] = durationNanos;
+        mBuckets[phase * BUCKET_COUNT + getBucket(durationNanos)]++;
+    }
+
+    /**
+     * @param durationNanos a duration in nanoseconds
+     * @return the histogram bucket of the duration
+     */
+    public static int getBucket(long durationNanos) {
+        int bucket = 64 - Long.numberOfLeadingZeros(durationNanos / 1000);
+        return bucket < BUCKET_COUNT ? bucket : BUCKET_COUNT - 1;
+    }
+
+    /**
+     * @param bucket a histogram bucket
+     * @return the exclusive upper bound of the durations counted in the bucket, in nanoseconds,
+     * Long.MAX_VALUE for the last bucket
+     */
+    public static long getBucketUpperBoundNanos(int bucket) {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) * 1000;
+    }
+
+    public long getCount(int phase) {
+        return mCounts[phase];
+    }
+
+    public long getTotalNanos(int phase) {
+        return mTotalNanos[phase];
+    }
+
+    public long getMaxNanos(int phase) {
+        return mMaxNanos[phase];
+    }
+
+    /**
+     * @param phase one of the PHASE_ constants
+     * @param bucket a histogram bucket, between 0 and BUCKET_COUNT - 1
+     * @return the number of times the phase took a duration of that bucket
+     */
+    public long getBucketCount(int phase, int bucket) {
+        return mBuckets[phase * BUCKET_COUNT + bucket];
+    }
+
+    /**
+     * @param phase one of the PHASE_ constants
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound of the bucket that contains the percentile, or the longest recorded
+     * duration if that is shorter, 0 if the phase was not recorded
+     */
+    public long getPercentileNanos(int phase, float percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Must be between 0 and 100");
+        }
+        long count = mCounts[phase];
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.f));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += mBuckets[phase * BUCKET_COUNT + bucket];
+            if (seen >= rank)
+                return Math.min(getBucketUpperBoundNanos(bucket), mMaxNanos[phase]);
+        }
+        return mMaxNanos[phase];
+    }
+
+    public void reset() {
+        Arrays.fill(mCounts, 0);
+        Arrays.fill(mTotalNanos, 0);
+        Arrays.fill(mMaxNanos, 0);
+        Arrays.fill(mBuckets, 0);
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+/**
+ * Receives the cost of each phase of the work done by the adapter and its rows. Called on the main
+ * thread, from the hot paths of binding and sliding: implementations should only record the
+ * values, like {@link SwipeMetrics} does.
+ */
+public interface SwipeMetricsListener {
+    /**
+     * @param phase one of the SwipeMetrics.PHASE_ constants
+     * @param durationNanos the time the phase took, in nanoseconds, 0 for phases that are only
+     *                      counted
+     */
+    void onPhase(int phase, long durationNanos);
+}
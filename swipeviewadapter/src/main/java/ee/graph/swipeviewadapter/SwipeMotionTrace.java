@@ -0,0 +1,216 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * The touch events that reached a list, recorded to reproduce a session of real gestures. Set it
+ * with {@link SwipeViewAdapter#setMotionTrace(SwipeMotionTrace)}, then save it with
+ * {@link #writeTo(OutputStream)} and replay it in the unit tests, see SwipeMotionReplayTest.
+ *
+ * Only the first pointer of the down, move, up and cancel events is recorded, which is all the
+ * touch listeners look at. Coordinates are relative to the list, times are in milliseconds from
+ * the first recorded event.
+ *
+ * The binary format is big endian: the int 0x53574D54 ("SWMT"), a version byte, the width and
+ * the height of the list and the number of events as ints, then for each event the action as a
+ * byte, the time since the previous event as an unsigned LEB128 varint, and x and y as floats.
+ * That is 10 bytes for most events.
+ */
+public final class SwipeMotionTrace {
+    private static final int
+            MAGIC = 0x53574D54,
+            VERSION = 1,
+            INITIAL_CAPACITY = 256;
+
+    /**
+     * Default maximum number of events, about 18 minutes of continuous touches at 60 events per
+     * second, for a little more than 1MB
+     */
+    public static final int DEFAULT_MAX_EVENTS = 65536;
+
+    private final int mMaxEvents;
+    private int
+            mWidth,
+            mHeight,
+            mSize = 0;
+    private byte[] mActions = new byte[INITIAL_CAPACITY];
+    private long[] mTimes = new long[INITIAL_CAPACITY];
+    private float[]
+            mX = new float[INITIAL_CAPACITY],
+            mY = new float[INITIAL_CAPACITY];
+
+    public SwipeMotionTrace() {
+        this(DEFAULT_MAX_EVENTS);
+    }
+
+    /**
+     * @param maxEvents the number of events after which recording stops, so a trace left
+     *                  recording doesn't grow without bounds
+     */
+    public SwipeMotionTrace(int maxEvents) {
+        if (maxEvents <= 0) {
+            throw new IllegalArgumentException("Must be a positive int");
+        }
+        mMaxEvents = maxEvents;
+    }
+
+    /**
+     * Record an event, ignored once the trace is full
+     *
+     * @param action the masked action, MotionEvent.ACTION_DOWN, ACTION_UP, ACTION_MOVE or ACTION_CANCEL
+     * @param eventTime the time of the event in milliseconds, in any time base
+     * @param x the x coordinate relative to the list
+     * @param y the y coordinate relative to the list
+     */
+    public void add(int action, long eventTime, float x, float y) {
+        if (mSize == mMaxEvents)
+            return;
+        if (mSize == mActions.length) {
+            int capacity = Math.min(mMaxEvents, mSize * 2);
+            mActions = Arrays.copyOf(mActions, capacity);
+            mTimes = Arrays.copyOf(mTimes, capacity);
+            mX = Arrays.copyOf(mX, capacity);
+            mY = Arrays.copyOf(mY, capacity);
+        }
+        mActions[mSize] = (byte) action;
+        mTimes[mSize] = eventTime;
+        mX[mSize] = x;
+        mY[mSize] = y;
+        mSize++;
+    }
+
+    /**
+     * Set the size of the list the events were recorded on, since the swipe thresholds depend
+     * on its width
+     */
+    public void setSize(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isFull() {
+        return mSize == mMaxEvents;
+    }
+
+    public int getAction(int index) {
+        return mActions[index];
+    }
+
+    /**
+     * @return the time of the event in milliseconds from the first event of the trace
+     */
+    public long getEventTime(int index) {
+        return mTimes[index] - mTimes[0];
+    }
+
+    public float getX(int index) {
+        return mX[index];
+    }
+
+    public float getY(int index) {
+        return mY[index];
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * Write the trace in the binary format described above. The stream is not closed.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(mWidth);
+        data.writeInt(mHeight);
+        data.writeInt(mSize);
+        for (int i = 0; i < mSize; i++) {
+            data.writeByte(mActions[i]);
+            writeVarLong(data, i == 0 ? 0 : mTimes[i] - mTimes[i - 1]);
+            data.writeFloat(mX[i]);
+            data.writeFloat(mY[i]);
+        }
+        data.flush();
+    }
+
+    /**
+     * Read a trace written by {@link #writeTo(OutputStream)}. The stream is not closed.
+     *
+     * @throws IOException if the stream is not a trace or a trace of a newer version
+     */
+    public static SwipeMotionTrace readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+            throw new IOException("Not a motion trace");
+        int version = data.readUnsignedByte();
+        if (version != VERSION)
+            throw new IOException("Unsupported motion trace version " + version);
+        int width = data.readInt();
+        int height = data.readInt();
+        int size = data.readInt();
+        if (size < 0)
+            throw new IOException("Invalid event count " + size);
+        SwipeMotionTrace trace = new SwipeMotionTrace(Math.max(1, size));
+        trace.setSize(width, height);
+        long time = 0;
+        for (int i = 0; i < size; i++) {
+            int action = data.readByte();
+            time += readVarLong(data);
+            trace.add(action, time, data.readFloat(), data.readFloat());
+        }
+        return trace;
+    }
+
+    private static void writeVarLong(DataOutputStream data, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            data.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream data) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = data.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Invalid time delta");
+    }
+}
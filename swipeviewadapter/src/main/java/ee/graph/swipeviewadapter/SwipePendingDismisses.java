@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import java.util.Arrays;
+
+/**
+ * Dismisses waiting to be delivered together, as positions and directions sorted by descending
+ * position. Each position is pending at most once.
+ */
+final class SwipePendingDismisses {
+    private int[]
+            mPositions = new int[8],
+            mDirections = new int[8];
+    private int mSize = 0;
+
+    /**
+     * @param position the position of the dismissed item
+     * @param direction the direction it was dismissed to
+     * @return false if the position was already pending
+     */
+    boolean add(int position, int direction) {
+        if (indexOf(position) >= 0)
+            return false;
+        if (mSize == mPositions.length) {
+            mPositions = Arrays.copyOf(mPositions, mSize * 2);
+            mDirections = Arrays.copyOf(mDirections, mSize * 2);
+        }
+        int i = mSize;
+        while (i > 0 && mPositions[i - 1] < position) {
+            mPositions[i] = mPositions[i - 1];
+            mDirections[i] = mDirections[i - 1];
+            i--;
+        }
+        mPositions[i] = position;
+        mDirections[i] = direction;
+        mSize++;
+        return true;
+    }
+
+    /**
+     * @param position the position of the dismissed item
+     * @return false if the position was not pending
+     */
+    boolean remove(int position) {
+        int index = indexOf(position);
+        if (index < 0)
+            return false;
+        mSize--;
+        System.arraycopy(mPositions, index + 1, mPositions, index, mSize - index);
+        System.arraycopy(mDirections, index + 1, mDirections, index, mSize - index);
+        return true;
+    }
+
+    /**
+     * @param position the position of an item
+     * @return the index of the pending dismiss of that position, or -1 if there is none
+     */
+    int indexOf(int position) {
+        for (int i = 0; i < mSize; i++) {
+            if (mPositions[i] == position)
+                return i;
+        }
+        return -1;
+    }
+
+    int positionAt(int index) {
+        return mPositions[index];
+    }
+
+    int directionAt(int index) {
+        return mDirections[index];
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * @return a copy of the pending positions, sorted in descending order
+     */
+    int[] copyPositions() {
+        return Arrays.copyOf(mPositions, mSize);
+    }
+
+    /**
+     * @return a copy of the pending directions, in the order of {@link #copyPositions()}
+     */
+    int[] copyDirections() {
+        return Arrays.copyOf(mDirections, mSize);
+    }
+
+    void clear() {
+        mSize = 0;
+    }
+}
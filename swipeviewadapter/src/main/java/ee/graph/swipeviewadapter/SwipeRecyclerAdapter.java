@@ -0,0 +1,877 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Adapter that adds support for multiple swipe actions to your RecyclerView
+ *
+ * It wraps your own {@link RecyclerView.Adapter}: every item view is put inside a
+ * {@link SwipeViewGroup} which holds the swipe backgrounds. Backgrounds are attached the first
+ * time a row is swiped and go back to a {@link SwipeBackgroundPool} when the ViewHolder gets
+ * recycled, so they move between rows instead of being inflated again.
+ *
+ * Dismissed items should be removed with {@link RecyclerView.Adapter#notifyItemRemoved(int)} on
+ * the wrapped adapter, so the RecyclerView ItemAnimator can animate the removal.
+ *
+ * The ViewHolders of the wrapped adapter are not owned by the RecyclerView, only the
+ * {@link SwipeViewHolder} around them is. Their getAdapterPosition(), getLayoutPosition() and
+ * getItemId() always return NO_POSITION or NO_ID: use {@link #getAdapterPosition(RecyclerView.ViewHolder)}
+ * and {@link #getItemId(RecyclerView.ViewHolder)} instead, for example in click listeners.
+ *
+ * @param <VH> the ViewHolder type of the wrapped adapter
+ */
+public class SwipeRecyclerAdapter<VH extends RecyclerView.ViewHolder>
+        extends RecyclerView.Adapter<SwipeRecyclerAdapter.SwipeViewHolder<VH>>
+        implements SwipeViewTouchListener.ActionCallbacks {
+    private static final String TAG = SwipeRecyclerAdapter.class.getName();
+    protected final RecyclerView.Adapter<VH> mAdapter;
+    private SwipeRecyclerTouchListener mTouchListener;
+    private RecyclerView mRecyclerView;
+    protected SwipeActionListener mSwipeActionListener;
+    private final SwipeBackgroundLoader mBackgroundLoader = new SwipeBackgroundLoader(new SwipeBackgroundLoader.Callbacks() {
+        @Override
+        public View onCreatePlaceholder(int direction, SwipeViewGroup parent) {
+            return SwipeRecyclerAdapter.this.onCreatePlaceholder(direction, parent);
+        }
+
+        @Override
+        public void onBackgroundInflated(int direction, int position, View background, SwipeViewGroup parent) {
+            parent.setBackgroundContentKey(direction, getBackgroundContentKey(position, direction));
+            parent.setBackgroundCreated(direction, true);
+            onGetBackground(true, direction, position, background, parent);
+        }
+    });
+    private SwipeMeasureCache mMeasureCache;
+    private SwipeMetricsListener mMetricsListener;
+    private SwipeBackgroundPrefetcher mPrefetcher;
+
+    private boolean
+            mFixedBackgrounds = false,
+            canSlideIn = true,
+            mFadeOut = false,
+            mFadeOutLeft = true,
+            mFadeOutRight = true,
+            mCoalesceLayoutUpdates = false,
+            mUseHardwareLayers = false,
+            mAnimateOnRenderThread = false,
+            mAsyncInflation = false,
+            mIdlePrefetch = false,
+            mVelocitySettle = false;
+
+    private float
+            mFarSwipeFraction = 0.5f,
+            mNormalSwipeFraction = 0.25f;
+
+    private int
+            animSlideDuration = 200,
+            mSlideInOffset = 0;
+
+    protected SparseIntArray
+            mBackgroundResIds = new SparseIntArray(),
+            mBackgroundType = new SparseIntArray();
+    protected SparseArray<SwipeBackgroundDrawer> mBackgroundDrawers = new SparseArray<>();
+
+    private final RecyclerView.AdapterDataObserver mDataObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            notifyItemRangeChanged(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            notifyItemRangeChanged(positionStart, itemCount, payload);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            notifyItemRangeInserted(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            notifyItemRangeRemoved(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            // RecyclerView only ever reports single item moves
+            notifyItemMoved(fromPosition, toPosition);
+        }
+    };
+
+    // Keeps the slid in position on the same item, whichever adapter was notified
+    private final RecyclerView.AdapterDataObserver mSlideInObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            if (mTouchListener != null)
+                mTouchListener.onItemRangeInserted(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            if (mTouchListener != null)
+                mTouchListener.onItemRangeRemoved(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            if (mTouchListener != null)
+                mTouchListener.onItemMoved(fromPosition, toPosition);
+        }
+    };
+
+    public SwipeRecyclerAdapter(RecyclerView.Adapter<VH> adapter) {
+        mAdapter = adapter;
+        setHasStableIds(adapter.hasStableIds());
+        mAdapter.registerAdapterDataObserver(mDataObserver);
+    }
+
+    @SuppressWarnings("unused")
+    public RecyclerView.Adapter<VH> getAdapter() {
+        return mAdapter;
+    }
+
+    /**
+     * @param wrappedHolder a ViewHolder of the wrapped adapter
+     * @return the adapter position of the item the ViewHolder shows, or NO_POSITION if its row is
+     * not in a RecyclerView
+     */
+    public static int getAdapterPosition(RecyclerView.ViewHolder wrappedHolder) {
+        View row = getRow(wrappedHolder);
+        return row == null ? RecyclerView.NO_POSITION : ((RecyclerView) row.getParent()).getChildAdapterPosition(row);
+    }
+
+    /**
+     * @param wrappedHolder a ViewHolder of the wrapped adapter
+     * @return the stable id of the item the ViewHolder shows, or NO_ID if its row is not in a
+     * RecyclerView or the adapter has no stable ids
+     */
+    public static long getItemId(RecyclerView.ViewHolder wrappedHolder) {
+        View row = getRow(wrappedHolder);
+        return row == null ? RecyclerView.NO_ID : ((RecyclerView) row.getParent()).getChildItemId(row);
+    }
+
+    // The SwipeViewGroup around the item view, when it is a child of a RecyclerView
+    private static View getRow(RecyclerView.ViewHolder wrappedHolder) {
+        ViewParent row = wrappedHolder.itemView.getParent();
+        if (row instanceof SwipeViewGroup && row.getParent() instanceof RecyclerView)
+            return (View) row;
+        return null;
+    }
+
+    @Override
+    public SwipeViewHolder<VH> onCreateViewHolder(ViewGroup parent, int viewType) {
+        VH wrappedHolder = mAdapter.onCreateViewHolder(parent, viewType);
+        SwipeViewGroup output = new SwipeViewGroup(parent.getContext());
+        output.setFixedBackground(mFixedBackgrounds);
+        output.setFadeOnTranslation(mFadeOut);
+        output.setFadeOnSlideLeft(mFadeOutLeft);
+        output.setFadeOnSlideRight(mFadeOutRight);
+        output.setCoalesceLayoutUpdates(mCoalesceLayoutUpdates);
+        output.setUseHardwareLayersWhileSliding(mUseHardwareLayers);
+        output.setAnimateOnRenderThread(mAnimateOnRenderThread);
+        output.setMinAnimDuration(animSlideDuration);
+        output.setBackgroundPool(mBackgroundLoader.getBackgroundPool());
+        output.setMeasureCache(mMeasureCache);
+        output.setMetricsListener(mMetricsListener);
+        output.countAllocation();
+        // Touches are routed through the RecyclerView.OnItemTouchListener
+        output.setSwipeTouchListener(null);
+        // The row is measured before its first layout, it must have its content by then
+        output.setContentViewNow(wrappedHolder.itemView);
+        getSwipeView(output);
+        final SwipeViewHolder<VH> holder = new SwipeViewHolder<>(output, wrappedHolder);
+        output.setOnSlideInListener(new SwipeViewGroup.OnSlideIn() {
+            @Override
+            public void onSlideIn(SwipeViewGroup view) {
+                loadBackgrounds(holder, holder.getAdapterPosition());
+                view.measureBackgrounds();
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(SwipeViewHolder<VH> holder, int position) {
+        onBindViewHolder(holder, position, Collections.<Object>emptyList());
+    }
+
+    @Override
+    public void onBindViewHolder(SwipeViewHolder<VH> holder, int position, List<Object> payloads) {
+        final long start = mMetricsListener != null ? System.nanoTime() : 0;
+        mAdapter.onBindViewHolder(holder.mWrappedHolder, position, payloads);
+        SwipeViewGroup row = holder.mSwipeViewGroup;
+        // A ViewHolder can be bound again without being recycled, for example after a change.
+        // Only the slid in item stays open.
+        boolean isSlideInItem = row.isSlideIn() && mTouchListener != null && position == mTouchListener.getSlideInViewPosition();
+        if ((row.isSliding() || row.isDismissed()) && !isSlideInItem)
+            row.resetViewPos();
+        // Backgrounds are rebound lazily, when the row starts sliding
+        holder.mSwipeViewGroup.setMetricsListener(mMetricsListener);
+        holder.mSwipeViewGroup.setBackgroundsBinding(RecyclerView.NO_POSITION, 0);
+        holder.mSwipeViewGroup.refreshVisibleView();
+        holder.mSwipeViewGroup.translateBackgrounds();
+        if (mMetricsListener != null)
+            mMetricsListener.onPhase(SwipeMetrics.PHASE_BIND, System.nanoTime() - start);
+    }
+
+    @Override
+    public void onViewRecycled(SwipeViewHolder<VH> holder) {
+        holder.mSwipeViewGroup.resetViewPos();
+        holder.mSwipeViewGroup.recycleBackgrounds();
+        mAdapter.onViewRecycled(holder.mWrappedHolder);
+    }
+
+    @Override
+    public boolean onFailedToRecycleView(SwipeViewHolder<VH> holder) {
+        return mAdapter.onFailedToRecycleView(holder.mWrappedHolder);
+    }
+
+    @Override
+    public void onViewAttachedToWindow(SwipeViewHolder<VH> holder) {
+        mAdapter.onViewAttachedToWindow(holder.mWrappedHolder);
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(SwipeViewHolder<VH> holder) {
+        mAdapter.onViewDetachedFromWindow(holder.mWrappedHolder);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        mAdapter.onAttachedToRecyclerView(recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        mAdapter.onDetachedFromRecyclerView(recyclerView);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mAdapter.getItemCount();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return mAdapter.getItemViewType(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mAdapter.getItemId(position);
+    }
+
+    public void getSwipeView(SwipeViewGroup output) {
+
+    }
+
+    public void onGetBackground(boolean isCreate, int direction, int position, View background, SwipeViewGroup parent) {
+
+    }
+
+    /**
+     * Make sure the backgrounds of the given ViewHolder exist and are bound to the given position.
+     * Backgrounds are taken from the background pool the first time a ViewHolder slides.
+     *
+     * @param holder the ViewHolder that is about to show its backgrounds
+     * @param position the adapter position the ViewHolder currently shows
+     */
+    public void loadBackgrounds(SwipeViewHolder<VH> holder, int position) {
+        if (holder == null || position == RecyclerView.NO_POSITION || holder.mSwipeViewGroup.isBackgroundsBound(position, 0))
+            return;
+        final long start = mMetricsListener != null ? System.nanoTime() : 0;
+        SwipeViewGroup output = holder.mSwipeViewGroup;
+        output.setBackgroundsBinding(position, 0);
+        for (int i = 0; i < mBackgroundResIds.size(); i++) {
+            int direction = mBackgroundResIds.keyAt(i);
+            int layoutId = mBackgroundResIds.valueAt(i);
+            int type = mBackgroundType.get(direction);
+            View bg = output.getBackground(direction);
+            if (bg == null) {
+                // The row may have given its backgrounds back to the pool when it was recycled
+                if (mAsyncInflation)
+                    bg = mBackgroundLoader.poll(layoutId);
+                else
+                    bg = mBackgroundLoader.acquire(output.getContext(), layoutId);
+                if (bg != null) {
+                    output.addBackground(bg, direction, type, layoutId);
+                    output.setBackgroundContentKey(direction, getBackgroundContentKey(position, direction));
+                    output.setBackgroundCreated(direction, true);
+                    onGetBackground(true, direction, position, bg, output);
+                } else if (mAsyncInflation) {
+                    mBackgroundLoader.inflateAsync(output, direction, type, layoutId);
+                }
+            } else if (!output.isBackgroundPending(direction)) {
+                output.setBackgroundContentKey(direction, getBackgroundContentKey(position, direction));
+                // A background inflated while the row was not bound was never created
+                boolean isCreate = !output.isBackgroundCreated(direction);
+                output.setBackgroundCreated(direction, true);
+                onGetBackground(isCreate, direction, position, bg, output);
+            }
+        }
+        for (int i = 0; i < mBackgroundDrawers.size(); i++) {
+            int direction = mBackgroundDrawers.keyAt(i);
+            SwipeBackgroundDrawer drawer = mBackgroundDrawers.valueAt(i);
+            if (output.getBackgroundDrawer(direction) != drawer)
+                output.addBackground(drawer, direction, mBackgroundType.get(direction));
+        }
+        if (mMetricsListener != null)
+            mMetricsListener.onPhase(SwipeMetrics.PHASE_LOAD_BACKGROUNDS, System.nanoTime() - start);
+    }
+
+    /**
+     * SwipeViewTouchListener.ActionCallbacks callback
+     * We just link it through to our own interface
+     *
+     * @param position the position of the item that was swiped
+     * @return boolean indicating whether the item has actions
+     */
+    @Override
+    public boolean hasActions(int position) {
+        return mSwipeActionListener != null && mSwipeActionListener.hasActions(position);
+    }
+
+    /**
+     * SwipeViewTouchListener.ActionCallbacks callback
+     * We just link it through to our own interface
+     *
+     * @param position The position to perform the action on
+     * @param direction The type of swipe that triggered the action.
+     */
+    @Override
+    public void onSwipeToDismiss(int position, int direction) {
+        if (mSwipeActionListener != null) {
+            long start = mMetricsListener != null ? System.nanoTime() : 0;
+            mSwipeActionListener.onSwipeToDismiss(position, direction);
+            if (mMetricsListener != null)
+                mMetricsListener.onPhase(SwipeMetrics.PHASE_DISMISS, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void onSwipeNormal(int position, int direction) {
+        if (mSwipeActionListener != null)
+            mSwipeActionListener.onSwipeNormal(position, direction);
+    }
+
+    public SwipeRecyclerAdapter<VH> setSlideInOffset(int slideInOffset) {
+        this.mSlideInOffset = slideInOffset;
+        if (mTouchListener != null)
+            mTouchListener.setSlideInOffset(slideInOffset);
+        return this;
+    }
+
+    public void slideInView(int position) {
+        if (mTouchListener != null)
+            mTouchListener.slideInView(position);
+    }
+
+    public void slideInView(int position, int direction) {
+        if (mTouchListener != null)
+            mTouchListener.slideInView(position, direction);
+    }
+
+    public boolean isViewSliding(int position) {
+        return mTouchListener != null && mTouchListener.isViewSliding(position);
+    }
+
+    public void toggleSlideInView(int position) {
+        if (mTouchListener != null)
+            mTouchListener.toggleSlideInView(position);
+    }
+
+    public boolean slideBack() {
+        return mTouchListener != null && mTouchListener.slideBack();
+    }
+
+    public int getSlideInViewPosition() {
+        if (mTouchListener != null)
+            return mTouchListener.getSlideInViewPosition();
+        return RecyclerView.NO_POSITION;
+    }
+
+    public boolean hasSlideInView() {
+        return mTouchListener != null && mTouchListener.hasSlideInView();
+    }
+
+    /**
+     * Set whether items should have a fadeOut animation
+     *
+     * @param fadeOut true makes items fade out with a swipe (opacity -> 0)
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setFadeOut(boolean fadeOut) {
+        this.mFadeOut = fadeOut;
+        return this;
+    }
+
+    /**
+     * Set whether items should have a fadeOut animation
+     *
+     * @param fadeOutLeft true makes items fade out with a left swipe (opacity -> 0)
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setFadeOutLeft(boolean fadeOutLeft) {
+        this.mFadeOutLeft = fadeOutLeft;
+        return this;
+    }
+
+    /**
+     * Set whether items should have a fadeOut animation
+     *
+     * @param fadeOutRight true makes items fade out with a right swipe (opacity -> 0)
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setFadeOutRight(boolean fadeOutRight) {
+        this.mFadeOutRight = fadeOutRight;
+        return this;
+    }
+
+    /**
+     * Set whether the backgrounds should be fixed or swipe in from the side
+     * The default value for this property is false: backgrounds will swipe in
+     *
+     * @param fixedBackgrounds true for fixed backgrounds, false for swipe in
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setFixedBackgrounds(boolean fixedBackgrounds) {
+        this.mFixedBackgrounds = fixedBackgrounds;
+        return this;
+    }
+
+    /**
+     * Set whether rows update their layout at most once per frame while they slide, instead of
+     * on every touch event and animation tick. Must be called before the first row is created.
+     *
+     * @param coalesceLayoutUpdates true to coalesce layout updates per frame
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setCoalesceLayoutUpdates(boolean coalesceLayoutUpdates) {
+        this.mCoalesceLayoutUpdates = coalesceLayoutUpdates;
+        return this;
+    }
+
+    /**
+     * Set whether rows render their content and visible background into hardware layers while
+     * they slide. Must be called before the first row is created.
+     *
+     * @param useHardwareLayers true to use hardware layers while sliding
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setUseHardwareLayersWhileSliding(boolean useHardwareLayers) {
+        this.mUseHardwareLayers = useHardwareLayers;
+        return this;
+    }
+
+    /**
+     * Set whether rows run slide animations that don't change their height with a
+     * ViewPropertyAnimator, on the RenderThread where available. Must be called before the first
+     * row is created.
+     *
+     * @param animateOnRenderThread true to use the ViewPropertyAnimator when possible
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setAnimateOnRenderThread(boolean animateOnRenderThread) {
+        this.mAnimateOnRenderThread = animateOnRenderThread;
+        return this;
+    }
+
+    public SwipeRecyclerAdapter<VH> setCanSlideIn(boolean canSlideIn) {
+        this.canSlideIn = canSlideIn;
+        if (mTouchListener != null)
+            mTouchListener.setCanSlideIn(canSlideIn);
+        return this;
+    }
+
+    /**
+     * Set whether rows settle from the velocity of the finger when it is released, instead of
+     * with the fixed slide duration. Fast swipes then finish in as little time as their velocity
+     * allows.
+     *
+     * @param velocitySettle true to settle rows from the release velocity
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setVelocitySettle(boolean velocitySettle) {
+        this.mVelocitySettle = velocitySettle;
+        if (mTouchListener != null)
+            mTouchListener.setVelocitySettle(velocitySettle);
+        return this;
+    }
+
+    /**
+     * Set the fraction of the View Width that needs to be swiped before it is counted as a far swipe
+     *
+     * @param farSwipeFraction float between 0 and 1
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setFarSwipeFraction(float farSwipeFraction) {
+        if (farSwipeFraction < 0 || farSwipeFraction > 1) {
+            throw new IllegalArgumentException("Must be a float between 0 and 1");
+        }
+        this.mFarSwipeFraction = farSwipeFraction;
+        if (mTouchListener != null)
+            mTouchListener.setFarSwipeFraction(farSwipeFraction);
+        return this;
+    }
+
+    /**
+     * Set the fraction of the View Width that needs to be swiped before it is counted as a normal swipe
+     *
+     * @param normalSwipeFraction float between 0 and 1
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setNormalSwipeFraction(float normalSwipeFraction) {
+        if (normalSwipeFraction < 0 || normalSwipeFraction > 1) {
+            throw new IllegalArgumentException("Must be a float between 0 and 1");
+        }
+        this.mNormalSwipeFraction = normalSwipeFraction;
+        if (mTouchListener != null)
+            mTouchListener.setNormalSwipeFraction(normalSwipeFraction);
+        return this;
+    }
+
+    /**
+     * Enable a swipe direction (none are enabled by default)
+     * Automatically adds on addBackground
+     *
+     * @param direction Integer const from SwipeDirections
+     */
+    public SwipeRecyclerAdapter<VH> addEnabledDirection(int direction, int type) {
+        if (mTouchListener != null)
+            mTouchListener.addEnabledDirection(direction);
+        mBackgroundType.put(direction, type);
+        return this;
+    }
+
+    /**
+     * We need the RecyclerView to be able to intercept its touch events
+     *
+     * @param recyclerView the RecyclerView to which the adapter will be attached
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeRecyclerAdapter<VH> setRecyclerView(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+        // Registered once, it follows the current touch listener
+        if (mTouchListener == null)
+            registerAdapterDataObserver(mSlideInObserver);
+        mTouchListener = new SwipeRecyclerTouchListener(recyclerView, this);
+        recyclerView.addOnItemTouchListener(mTouchListener);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int scrollState) {
+                mTouchListener.onScrollStateChanged(recyclerView, scrollState);
+                if (mPrefetcher != null) {
+                    if (scrollState == RecyclerView.SCROLL_STATE_IDLE)
+                        mPrefetcher.start();
+                    else
+                        mPrefetcher.stop();
+                }
+                if (mSwipeActionListener != null)
+                    mSwipeActionListener.onScrollStateChanged(recyclerView, scrollState);
+            }
+
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (mSwipeActionListener != null)
+                    mSwipeActionListener.onScrolled(recyclerView, dx, dy);
+            }
+        });
+        recyclerView.setClipChildren(false);
+        mTouchListener.setOnSwipeActionTouchListener(new SwipeViewTouchListener.OnSwipeActionTouchListener() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void onSliding(SwipeViewGroup swipeViewGroup, int position) {
+                if (mSwipeActionListener != null)
+                    mSwipeActionListener.onSliding(swipeViewGroup, position);
+                if (mPrefetcher != null)
+                    mPrefetcher.stop();
+                slideInView(RecyclerView.NO_POSITION);
+                loadBackgrounds((SwipeViewHolder<VH>) mRecyclerView.getChildViewHolder(swipeViewGroup), position);
+            }
+        });
+        for (int i = 0; i < mBackgroundType.size(); i++)
+            mTouchListener.addEnabledDirection(mBackgroundType.keyAt(i));
+        mTouchListener.setNormalSwipeFraction(mNormalSwipeFraction);
+        mTouchListener.setFarSwipeFraction(mFarSwipeFraction);
+        mTouchListener.setCanSlideIn(canSlideIn);
+        mTouchListener.setSlideInOffset(mSlideInOffset);
+        mTouchListener.setVelocitySettle(mVelocitySettle);
+        if (mIdlePrefetch) {
+            mPrefetcher = new SwipeBackgroundPrefetcher(recyclerView, new SwipeBackgroundPrefetcher.PrefetchStep() {
+                @Override
+                public boolean onPrefetchStep(int step) {
+                    return prefetchBackgrounds(step);
+                }
+            });
+            mPrefetcher.start();
+        }
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean prefetchBackgrounds(int step) {
+        int childCount = mRecyclerView.getChildCount();
+        if (step >= childCount)
+            return mBackgroundLoader.prefetchPool(mRecyclerView.getContext(), mBackgroundResIds, step - childCount);
+        SwipeViewHolder<VH> holder = (SwipeViewHolder<VH>) mRecyclerView.getChildViewHolder(mRecyclerView.getChildAt(step));
+        int position = holder.getAdapterPosition();
+        if (position != RecyclerView.NO_POSITION
+                && (mSwipeActionListener == null || mSwipeActionListener.hasActions(position))) {
+            loadBackgrounds(holder, position);
+            holder.mSwipeViewGroup.measureBackgrounds();
+        }
+        return true;
+    }
+
+    public RecyclerView getRecyclerView() {
+        return mRecyclerView;
+    }
+
+    /**
+     * Share a pool of background views with other adapters, for example the tabs of a ViewPager.
+     * Each adapter has its own pool by default. Must be called before the first ViewHolder is
+     * created.
+     *
+     * @param backgroundPool the pool to take backgrounds from and give them back to
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeRecyclerAdapter<VH> setBackgroundPool(SwipeBackgroundPool backgroundPool) {
+        if (backgroundPool == null) {
+            throw new IllegalArgumentException("The background pool can't be null");
+        }
+        mBackgroundLoader.setBackgroundPool(backgroundPool);
+        return this;
+    }
+
+    public SwipeBackgroundPool getBackgroundPool() {
+        return mBackgroundLoader.getBackgroundPool();
+    }
+
+    /**
+     * Reuse the measured heights of the backgrounds across rows instead of measuring each
+     * background when it is bound. Backgrounds of the same layout share a height, unless
+     * {@link #getBackgroundContentKey(int, int)} tells them apart. Disabled by default. Must be
+     * called before the first row is created.
+     *
+     * @param measureCache the cache of measured heights, or null to measure every background
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setMeasureCache(SwipeMeasureCache measureCache) {
+        this.mMeasureCache = measureCache;
+        return this;
+    }
+
+    /**
+     * Set whether backgrounds are prepared while the list is idle: the visible rows load and
+     * measure their backgrounds, then the background pool is filled for the rows that scroll in
+     * next. The work is split in slices of a few milliseconds per frame, and stops as soon as the
+     * list scrolls or a row slides. Must be called before setRecyclerView(RecyclerView).
+     *
+     * @param idlePrefetch true to prefetch backgrounds while the list is idle
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setIdlePrefetch(boolean idlePrefetch) {
+        this.mIdlePrefetch = idlePrefetch;
+        return this;
+    }
+
+    /**
+     * Report the cost of binds, background loads and inflations, measures, layout requests,
+     * animation frames and dismisses, see {@link SwipeMetrics}. Nothing is timed while no
+     * listener is set.
+     *
+     * @param metricsListener the listener, or null to stop reporting
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setMetricsListener(SwipeMetricsListener metricsListener) {
+        this.mMetricsListener = metricsListener;
+        mBackgroundLoader.setMetricsListener(metricsListener);
+        return this;
+    }
+
+    public SwipeMeasureCache getMeasureCache() {
+        return mMeasureCache;
+    }
+
+    /**
+     * Set whether backgrounds that are not in the background pool are inflated on a worker
+     * thread. A placeholder from {@link #onCreatePlaceholder(int, SwipeViewGroup)} is shown until
+     * the background is ready, so the first swipe of a row doesn't wait for the inflation.
+     * Background layouts must then be safe to inflate off the main thread.
+     *
+     * @param asyncInflation true to inflate backgrounds on a worker thread
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeRecyclerAdapter<VH> setAsyncInflation(boolean asyncInflation) {
+        this.mAsyncInflation = asyncInflation;
+        return this;
+    }
+
+    /**
+     * Create the view shown in place of a background while it is inflated in async inflation
+     * mode. Override to show something closer to the real background, it should stay cheap.
+     *
+     * @param direction the direction of the background
+     * @param parent the row the placeholder is added to
+     * @return the placeholder view
+     */
+    public View onCreatePlaceholder(int direction, SwipeViewGroup parent) {
+        return new View(parent.getContext());
+    }
+
+    /**
+     * Override to tell apart backgrounds of the same layout whose height depends on the item
+     * they show, when a measure cache is set. Backgrounds with the same key share a height.
+     *
+     * @param position the position of the item
+     * @param direction the direction of the background
+     * @return the key of the content of the background, 0 by default
+     */
+    public long getBackgroundContentKey(int position, int direction) {
+        return 0;
+    }
+
+    /**
+     * Add a background image for a certain callback. The key for the background must be one of the
+     * directions from the SwipeDirections class.
+     *
+     * @param key the identifier of the callback for which this resource should be shown
+     * @param layoutId the resource Id of the background to add
+     * @param type int -1 -2 -3 if set to wrap_content, the row height will be resized to the background height when shown, if set to dismiss, the row will shrink to 0
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeRecyclerAdapter<VH> addBackground(int key, int layoutId, int type) {
+        if(SwipeDirections.isDirection(key)) {
+            mBackgroundResIds.put(key, layoutId);
+            mBackgroundDrawers.remove(key);
+            addEnabledDirection(key, type);
+        }
+        return this;
+    }
+
+    public SwipeRecyclerAdapter<VH> addBackground(int key, int resId) {
+        return addBackground(key, resId, SwipeViewGroup.LAYOUT_MATCH_PARENT);
+    }
+
+    /**
+     * Add a background drawn by the rows instead of inflated, see {@link SwipeBackgroundDrawer}.
+     * It adds no view to the rows, so it is never inflated, measured or laid out. The drawer is
+     * shared by all the rows and onGetBackground() is not called for it.
+     *
+     * @param key the identifier of the callback for which this background should be shown
+     * @param drawer draws the background in the area revealed by the swipe
+     * @param type LAYOUT_MATCH_PARENT, or LAYOUT_DISMISS to shrink the row to 0
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeRecyclerAdapter<VH> addBackground(int key, SwipeBackgroundDrawer drawer, int type) {
+        if (drawer == null) {
+            throw new IllegalArgumentException("The drawer can't be null");
+        }
+        if (type != SwipeViewGroup.LAYOUT_MATCH_PARENT && type != SwipeViewGroup.LAYOUT_DISMISS) {
+            throw new IllegalArgumentException("Must be LAYOUT_MATCH_PARENT or LAYOUT_DISMISS");
+        }
+        if(SwipeDirections.isDirection(key)) {
+            mBackgroundDrawers.put(key, drawer);
+            mBackgroundResIds.delete(key);
+            addEnabledDirection(key, type);
+        }
+        return this;
+    }
+
+    public SwipeRecyclerAdapter<VH> addBackground(int key, SwipeBackgroundDrawer drawer) {
+        return addBackground(key, drawer, SwipeViewGroup.LAYOUT_MATCH_PARENT);
+    }
+
+    /**
+     * Set the listener for swipe events
+     *
+     * @param mSwipeActionListener class listening to swipe events
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeRecyclerAdapter<VH> setSwipeActionListener(SwipeActionListener mSwipeActionListener) {
+        this.mSwipeActionListener = mSwipeActionListener;
+        return this;
+    }
+
+    public void setAnimSlideDuration(int animSlideDuration) {
+        this.animSlideDuration = animSlideDuration;
+    }
+
+    /**
+     * ViewHolder holding the SwipeViewGroup of a row and the ViewHolder of the wrapped adapter
+     *
+     * @param <VH> the ViewHolder type of the wrapped adapter
+     */
+    public static class SwipeViewHolder<VH extends RecyclerView.ViewHolder> extends RecyclerView.ViewHolder {
+        private final SwipeViewGroup mSwipeViewGroup;
+        private final VH mWrappedHolder;
+
+        public SwipeViewHolder(SwipeViewGroup swipeViewGroup, VH wrappedHolder) {
+            super(swipeViewGroup);
+            mSwipeViewGroup = swipeViewGroup;
+            mWrappedHolder = wrappedHolder;
+        }
+
+        public SwipeViewGroup getSwipeViewGroup() {
+            return mSwipeViewGroup;
+        }
+
+        public VH getWrappedHolder() {
+            return mWrappedHolder;
+        }
+    }
+
+    /**
+     * Interface that listeners of swipe events should implement
+     */
+    public interface SwipeActionListener {
+        boolean hasActions(int position);
+        void onSwipeToDismiss(int position, int direction);
+        void onSwipeNormal(int position, int direction);
+        void onScrollStateChanged(RecyclerView recyclerView, int scrollState);
+        void onScrolled(RecyclerView recyclerView, int dx, int dy);
+        void onSliding(SwipeViewGroup swipeViewGroup, int position);
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.support.v7.widget.RecyclerView;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+/**
+ * A {@link RecyclerView.OnItemTouchListener} that makes the items of a {@link RecyclerView}
+ * swipeable. It follows the same gesture rules as {@link SwipeViewTouchListener}, but lets the
+ * RecyclerView route the events: once a horizontal swipe is detected the touch stream is
+ * intercepted and the children receive a cancel event.
+ */
+public class SwipeRecyclerTouchListener implements RecyclerView.OnItemTouchListener {
+    private static final String TAG = SwipeRecyclerTouchListener.class.getName();
+
+    private float mReleaseVelocity = 0; // velocity the row settles with after ACTION_UP, 0 for none
+
+    private boolean
+            canSlideIn = true,
+            mIsEnabled = true,
+            mIsPerformingDismiss = false,
+            mVelocitySettle = false;
+
+    private int
+            mDownPosition,
+            mSlideInView = RecyclerView.NO_POSITION,
+            mSlideInOffset = 0;
+
+    private RecyclerView mRecyclerView;
+    private SwipeViewTouchListener.ActionCallbacks mCallbacks;
+    // Slop, thresholds, direction and release decision of the gesture
+    private final SwipeGestureEngine mEngine;
+    private VelocityTracker mVelocityTracker;
+    private SwipeViewGroup mDownViewGroup;
+    private SwipeViewTouchListener.OnSwipeActionTouchListener onSwipeActionTouchListener;
+
+    /**
+     * Constructs a new swipe touch listener for the given recycler view.
+     *
+     * @param recyclerView The recycler view whose items should be swipeable.
+     * @param callbacks The callback to trigger when an item has been swiped.
+     */
+    public SwipeRecyclerTouchListener(RecyclerView recyclerView, SwipeViewTouchListener.ActionCallbacks callbacks) {
+        ViewConfiguration vc = ViewConfiguration.get(recyclerView.getContext());
+        mEngine = new SwipeGestureEngine(vc.getScaledTouchSlop(),
+                vc.getScaledMinimumFlingVelocity() * 16, vc.getScaledMaximumFlingVelocity());
+        mRecyclerView = recyclerView;
+        mCallbacks = callbacks;
+    }
+
+    public void setSlideInOffset(int mSlideInOffset) {
+        this.mSlideInOffset = mSlideInOffset;
+    }
+
+    /**
+     * Enables or disables (pauses or resumes) watching for swipe gestures.
+     *
+     * @param enabled Whether or not to watch for gestures.
+     */
+    public void setEnabled(boolean enabled) {
+        mIsEnabled = enabled;
+    }
+
+    public void setOnSwipeActionTouchListener(SwipeViewTouchListener.OnSwipeActionTouchListener onSwipeActionTouchListener) {
+        this.onSwipeActionTouchListener = onSwipeActionTouchListener;
+    }
+
+    /**
+     * Should be called from the {@link RecyclerView.OnScrollListener} of the RecyclerView, so
+     * swiping is paused while the user drags the list.
+     */
+    public void onScrollStateChanged(RecyclerView recyclerView, int scrollState) {
+        setEnabled(scrollState != RecyclerView.SCROLL_STATE_DRAGGING);
+        slideInView(RecyclerView.NO_POSITION);
+    }
+
+    public void setCanSlideIn(boolean canSlideIn) {
+        this.canSlideIn = canSlideIn;
+    }
+
+    /**
+     * Set whether the row settles from the velocity of the finger when it is released, see
+     * {@link SwipeViewTouchListener#setVelocitySettle(boolean)}
+     *
+     * @param velocitySettle true to settle rows from the release velocity
+     */
+    public void setVelocitySettle(boolean velocitySettle) {
+        this.mVelocitySettle = velocitySettle;
+    }
+
+    /**
+     * Set the fraction of the View Width that needs to be swiped before it is counted as a far swipe
+     *
+     * @param farSwipeFraction float between 0 and 1, should be equal to or greater than normalSwipeFraction
+     */
+    protected void setFarSwipeFraction(float farSwipeFraction) {
+        mEngine.setFarSwipeFraction(farSwipeFraction);
+    }
+
+    /**
+     * Set the fraction of the View Width that needs to be swiped before it is counted as a normal swipe
+     *
+     * @param normalSwipeFraction float between 0 and 1, should be equal to or less than farSwipeFraction
+     */
+    protected void setNormalSwipeFraction(float normalSwipeFraction) {
+        mEngine.setNormalSwipeFraction(normalSwipeFraction);
+    }
+
+    /**
+     * Enable a swipe direction (none are enabled by default)
+     *
+     * @param direction Integer const from SwipeDirections
+     */
+    protected void addEnabledDirection(int direction) {
+        mEngine.addEnabledDirection(direction);
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(RecyclerView recyclerView, MotionEvent event) {
+        return onTouch(event);
+    }
+
+    @Override
+    public void onTouchEvent(RecyclerView recyclerView, MotionEvent event) {
+        onTouch(event);
+    }
+
+    @Override
+    public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+        if (disallowIntercept) {
+            cancel();
+            reset();
+        }
+    }
+
+    private boolean onTouch(MotionEvent event) {
+        if(mIsPerformingDismiss)
+            return false;
+        if (mEngine.getViewWidth() < 2)
+            mEngine.setViewWidth(mRecyclerView.getWidth());
+
+        switch (event.getActionMasked()) {
+
+            case MotionEvent.ACTION_DOWN: {
+                if (!mIsEnabled || mEngine.isDown())
+                    return false;
+
+                cancel();
+                reset();
+                mDownViewGroup = getClickedView(event);
+                if (mDownViewGroup != null) {
+                    mDownPosition = mRecyclerView.getChildAdapterPosition(mDownViewGroup);
+                    if (mDownPosition != RecyclerView.NO_POSITION && mCallbacks.hasActions(mDownPosition)) {
+                        mEngine.onDown(event.getRawX(), event.getRawY());
+                        initVelocityTracker();
+                        mVelocityTracker.addMovement(event);
+                    } else {
+                        reset();
+                    }
+                }
+                return false;
+            }
+
+            case MotionEvent.ACTION_CANCEL: {
+                cancel();
+                reset();
+                break;
+            }
+
+            case MotionEvent.ACTION_UP: {
+                if (mVelocityTracker == null || mDownPosition == RecyclerView.NO_POSITION || mDownViewGroup.isSlideIn()) {
+                    reset();
+                    break;
+                }
+
+                mVelocityTracker.addMovement(event);
+                mVelocityTracker.computeCurrentVelocity(1000);
+                if (mVelocitySettle)
+                    mReleaseVelocity = mVelocityTracker.getXVelocity();
+                int release = mEngine.onUp(event.getRawX(), mVelocityTracker.getXVelocity(),
+                        mVelocityTracker.getYVelocity(), canDismiss(), canSlideIn);
+                if (release == SwipeGestureEngine.UP_DISMISS_RIGHT || release == SwipeGestureEngine.UP_DISMISS_LEFT) {
+                    dismiss(release == SwipeGestureEngine.UP_DISMISS_RIGHT);
+                } else if (release == SwipeGestureEngine.UP_SLIDE_IN) {
+                    mCallbacks.onSwipeNormal(mDownPosition, mEngine.getDirection());
+                    slideInView(mDownPosition);
+                } else if (release == SwipeGestureEngine.UP_CANCEL) {
+                    cancel();
+                }
+                reset();
+                break;
+            }
+
+            case MotionEvent.ACTION_MOVE: {
+                if (mVelocityTracker == null || !mIsEnabled || mDownViewGroup.isSlideIn()) {
+                    cancel();
+                    reset();
+                    break;
+                }
+
+                mVelocityTracker.addMovement(event);
+                int move = mEngine.onMove(event.getRawX(), event.getRawY());
+                if (move == SwipeGestureEngine.MOVE_SLIDE) {
+                    mDownViewGroup.setVisibleView(mEngine.getDirection());
+                    mDownViewGroup.setTranslationX(mEngine.getTranslationX());
+                    if(onSwipeActionTouchListener != null)
+                        onSwipeActionTouchListener.onSliding(mDownViewGroup, mDownPosition);
+                    return true;
+                } else if (move != SwipeGestureEngine.MOVE_NONE) {
+                    // From now on the RecyclerView routes the gesture to us and cancels the children
+                    return true;
+                }
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void reset() {
+        if(mVelocityTracker != null)
+            mVelocityTracker.recycle();
+        mVelocityTracker = null;
+        mDownViewGroup = null;
+        mDownPosition = RecyclerView.NO_POSITION;
+        mEngine.reset();
+        mReleaseVelocity = 0;
+    }
+
+    private void cancel() {
+        if(mDownViewGroup != null && (mDownViewGroup.isSlideIn() || mDownViewGroup.getTranslationX() != 0)) {
+            if (mReleaseVelocity != 0)
+                mDownViewGroup.slideBack(mReleaseVelocity, null);
+            else
+                mDownViewGroup.slideBack();
+        }
+    }
+
+    private void initVelocityTracker() {
+        if(mVelocityTracker == null)
+            mVelocityTracker = VelocityTracker.obtain();
+        else
+            mVelocityTracker.clear();
+    }
+
+    private void dismiss(boolean dismissRight) {
+        final SwipeViewGroup downViewGroup = mDownViewGroup; // mDownViewGroup gets null'd before animation ends
+        final int downPosition = mDownPosition;
+        final int direction = mEngine.getDirection();
+        final int translation = dismissRight ? mEngine.getViewWidth() : -mEngine.getViewWidth();
+        mIsPerformingDismiss = true;
+        AnimatorListenerAdapter listener = new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                // The row was animated elsewhere, the item is not dismissed
+                mIsPerformingDismiss = false;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                performDismiss(downViewGroup, downPosition, direction);
+                mIsPerformingDismiss = false;
+            }
+        };
+        int translationX = (int) (translation * 0.997f); // HACK to prevent bug with view flashing big quickly
+        if (mReleaseVelocity != 0)
+            downViewGroup.animateTranslationX(translationX, mReleaseVelocity, listener);
+        else
+            downViewGroup.animateTranslationX(translationX, listener);
+    }
+
+    private void performDismiss(SwipeViewGroup dismissView, int dismissPosition, int direction) {
+        mCallbacks.onSwipeToDismiss(dismissPosition, direction);
+        // If the item was removed, the row stays off screen while the ItemAnimator runs and is
+        // reset once it gets recycled. Otherwise bring it back right away.
+        if (mRecyclerView.getChildAdapterPosition(dismissView) == dismissPosition)
+            dismissView.resetViewPos();
+    }
+
+    // Find the child view that was touched (perform a hit test)
+    private SwipeViewGroup getClickedView(MotionEvent motionEvent) {
+        int y = (int) motionEvent.getY();
+        for (int i = mRecyclerView.getChildCount() - 1; i >= 0; i--) {
+            View child = mRecyclerView.getChildAt(i);
+            float top = child.getTop() + child.getTranslationY();
+            if (y >= top && y < top + child.getHeight())
+                return child instanceof SwipeViewGroup ? (SwipeViewGroup) child : null;
+        }
+        return null;
+    }
+
+    private boolean canDismiss() {
+        return mDownViewGroup.getBackgroundType(mEngine.getDirection()) == SwipeViewGroup.LAYOUT_DISMISS;
+    }
+
+    public SwipeViewGroup getViewAtPosition(int position) {
+        if (mRecyclerView != null) {
+            RecyclerView.ViewHolder holder = mRecyclerView.findViewHolderForAdapterPosition(position);
+            if (holder != null && holder.itemView instanceof SwipeViewGroup)
+                return (SwipeViewGroup) holder.itemView;
+        }
+        return null;
+    }
+
+    public boolean isViewSliding(int position) {
+        SwipeViewGroup swipeViewGroup = getViewAtPosition(position);
+        return swipeViewGroup != null && swipeViewGroup.isSliding();
+    }
+
+    public void slideInView(int position, int direction) {
+        if (mRecyclerView != null) {
+            mSlideInView = position;
+            int count = mRecyclerView.getChildCount();
+            for (int i = 0; i < count; i++) {
+                View v = mRecyclerView.getChildAt(i);
+                if(v instanceof SwipeViewGroup) {
+                    final SwipeViewGroup view = (SwipeViewGroup) v;
+                    if (view.isSlideIn()) {
+                        view.slideBack(new SwipeViewGroup.OnSlideBack() {
+                            @Override
+                            public void onSlideBackEnd(Animator animation) {
+                                view.setVisibleView(SwipeDirections.DIRECTION_NEUTRAL);
+                            }
+                        });
+                    } else if (position != RecyclerView.NO_POSITION && mRecyclerView.getChildAdapterPosition(view) == mSlideInView) {
+                        int translationX = view.getWidth() - mSlideInOffset;
+                        int slideInDirection = direction == SwipeDirections.DIRECTION_NEUTRAL ? SwipeDirections.DIRECTION_NORMAL_RIGHT : direction;
+                        // The row released by the finger settles from the finger velocity
+                        if (mReleaseVelocity != 0 && view == mDownViewGroup)
+                            view.slideIn(slideInDirection, mReleaseVelocity, translationX, null);
+                        else
+                            view.slideIn(slideInDirection, translationX, null);
+                    }
+                }
+            }
+        }
+    }
+
+    public void slideInView(int position) {
+        slideInView(position, mEngine.getDirection());
+    }
+
+    public void toggleSlideInView(int position) {
+        slideInView(mSlideInView == position ? RecyclerView.NO_POSITION : position);
+    }
+
+    public boolean slideBack() {
+        if(hasSlideInView()) {
+            slideInView(RecyclerView.NO_POSITION);
+            return true;
+        }
+        return false;
+    }
+
+    public int getSlideInViewPosition() {
+        return mSlideInView;
+    }
+
+    /**
+     * Keep the slid in position on the same item when items are inserted before it
+     */
+    void onItemRangeInserted(int positionStart, int itemCount) {
+        if (mSlideInView != RecyclerView.NO_POSITION && mSlideInView >= positionStart)
+            mSlideInView += itemCount;
+    }
+
+    /**
+     * Keep the slid in position on the same item when items are removed before it, or clear it
+     * when the slid in item is removed
+     */
+    void onItemRangeRemoved(int positionStart, int itemCount) {
+        if (mSlideInView == RecyclerView.NO_POSITION || mSlideInView < positionStart)
+            return;
+        if (mSlideInView < positionStart + itemCount)
+            mSlideInView = RecyclerView.NO_POSITION;
+        else
+            mSlideInView -= itemCount;
+    }
+
+    /**
+     * Keep the slid in position on the same item when an item is moved
+     */
+    void onItemMoved(int fromPosition, int toPosition) {
+        if (mSlideInView == RecyclerView.NO_POSITION)
+            return;
+        if (mSlideInView == fromPosition)
+            mSlideInView = toPosition;
+        else if (fromPosition < mSlideInView && toPosition >= mSlideInView)
+            mSlideInView--;
+        else if (fromPosition > mSlideInView && toPosition <= mSlideInView)
+            mSlideInView++;
+    }
+
+    public boolean hasSlideInView() {
+        return mSlideInView != RecyclerView.NO_POSITION;
+    }
+
+    public RecyclerView getRecyclerView() {
+        return mRecyclerView;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 Graphee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.graph.swipeviewadapter;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Trace sections around the hot paths of the library, so they show up by name in systrace.
+ * Disabled by default: each traced path then only reads one static field.
+ *
+ * Sections are named after the class and the method they cover, for example
+ * "SwipeViewAdapter.getView", and keep these names across releases.
+ */
+public final class SwipeTrace {
+    static final String
+            GET_VIEW = "SwipeViewAdapter.getView",
+            LOAD_BACKGROUNDS = "SwipeViewAdapter.loadBackgrounds",
+            ON_GET_BACKGROUND = "SwipeViewAdapter.onGetBackground",
+            UPDATE_VIEW = "SwipeViewGroup.updateView",
+            MEASURE_BACKGROUND = "SwipeViewGroup.measureBackground",
+            GET_CLICKED_VIEW = "SwipeViewTouchListener.getClickedView",
+            SLIDE_IN_VIEW = "SwipeViewTouchListener.slideInView";
+
+    // Checked by the call sites before anything else
+    static boolean sEnabled = false;
+
+    private SwipeTrace() {
+    }
+
+    /**
+     * Set whether the library writes trace sections. Should be set before the list is shown, a
+     * section that was begun while tracing was enabled is still ended. Ignored before Android
+     * 4.3, which has no app trace sections.
+     *
+     * @param enabled true to write trace sections
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static void beginSection(String name) {
+        Trace.beginSection(name);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static void endSection() {
+        Trace.endSection();
+    }
+}
@@ -16,16 +16,19 @@
 
 package ee.graph.swipeviewadapter;
 
+import android.content.Context;
+import android.database.DataSetObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
 import android.util.SparseIntArray;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.AbsListView;
 import android.widget.BaseAdapter;
 import android.widget.ListView;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Adapter that adds support for multiple swipe actions to your ListView
  *
@@ -35,10 +38,57 @@ import java.util.List;
 public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchListener.ActionCallbacks {
     private static final String TAG = SwipeViewAdapter.class.getName();
     private SwipeViewTouchListener mTouchListener;
-    private List<Integer> itemViewTypesWithoutSwipeList = new ArrayList<>();
-    private List<Integer> positionWithBackgroundLoaded = new ArrayList<>();
-    private int latestPositionWithLoadedBackground = -1;
+    private ListView mListView;
+    // Indexed by item view type
+    private boolean[] mItemViewTypesWithoutSwipe = new boolean[0];
+    private int mDataGeneration = 0;
     protected SwipeActionListener mSwipeActionListener;
+    private AbsListView.RecyclerListener mRecyclerListener;
+    private BatchDismissListener mBatchDismissListener;
+    private long mDismissWindowMillis = 0;
+    // Dismisses waiting for the end of the window
+    private final SwipePendingDismisses mPendingDismisses = new SwipePendingDismisses();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mCommitDismissesRunnable = new Runnable() {
+        @Override
+        public void run() {
+            commitDismisses();
+        }
+    };
+    // A data change keeps the backgrounds of the scrapped rows until the next layout
+    private final DataSetObserver mDataChangeObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            mDataChangePending = true;
+        }
+
+        @Override
+        public void onInvalidated() {
+            mDataChangePending = true;
+        }
+    };
+    private final ViewTreeObserver.OnGlobalLayoutListener mDataChangeLayoutListener = new ViewTreeObserver.OnGlobalLayoutListener() {
+        @Override
+        public void onGlobalLayout() {
+            mDataChangePending = false;
+        }
+    };
+    private final SwipeBackgroundLoader mBackgroundLoader = new SwipeBackgroundLoader(new SwipeBackgroundLoader.Callbacks() {
+        @Override
+        public View onCreatePlaceholder(int direction, SwipeViewGroup parent) {
+            return SwipeViewAdapter.this.onCreatePlaceholder(direction, parent);
+        }
+
+        @Override
+        public void onBackgroundInflated(int direction, int position, View background, SwipeViewGroup parent) {
+            parent.setBackgroundContentKey(direction, getBackgroundContentKey(position, direction));
+            dispatchGetBackground(true, direction, position, background, parent);
+        }
+    });
+    private SwipeMeasureCache mMeasureCache;
+    private SwipeMetricsListener mMetricsListener;
+    private SwipeMotionTrace mMotionTrace;
+    private SwipeBackgroundPrefetcher mPrefetcher;
 
     private boolean
             mFixedBackgrounds = false,
@@ -46,7 +96,17 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
             mFadeOut = false,
             mFadeOutLeft = true,
             mFadeOutRight = true,
-            isFlinging = false;
+            mCoalesceLayoutUpdates = false,
+            mUseHardwareLayers = false,
+            mAnimateOnRenderThread = false,
+            mAsyncInflation = false,
+            mIdlePrefetch = false,
+            mDeferBindingWhileFlinging = false,
+            mHasDeferredRows = false,
+            mCollapseOnDismiss = false,
+            mVelocitySettle = false,
+            isFlinging = false,
+            mDataChangePending = false; // set until the ListView laid out the changed data
 
     private float
             mFarSwipeFraction = 0.5f,
@@ -57,6 +117,7 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
     protected SparseIntArray
             mBackgroundResIds = new SparseIntArray(),
             mBackgroundType = new SparseIntArray();
+    protected SparseArray<SwipeBackgroundDrawer> mBackgroundDrawers = new SparseArray<>();
 
 
     public SwipeViewAdapter(BaseAdapter baseAdapter){
@@ -65,48 +126,127 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
 
     @Override
     public View getView(final int position, final View convertView, final ViewGroup parent) {
+        // Rows without swipe are not wrapped, the ListView recycles them with their own view type
+        if (!hasSwipe(getItemViewType(position)))
+            return super.getView(position, convertView, parent);
+
+        final boolean trace = SwipeTrace.sEnabled;
+        if (trace)
+            SwipeTrace.beginSection(SwipeTrace.GET_VIEW);
+        final long start = mMetricsListener != null ? System.nanoTime() : 0;
         SwipeViewGroup output = (SwipeViewGroup) convertView;
-        int itemViewType = getItemViewType(position);
-        if (!itemViewTypesWithoutSwipeList.contains(itemViewType)) {
-            if (output == null) {
-                output = new SwipeViewGroup(parent.getContext());
-                output.setFixedBackground(mFixedBackgrounds);
-                output.setFadeOnTranslation(mFadeOut);
-                output.setFadeOnSlideLeft(mFadeOutLeft);
-                output.setFadeOnSlideRight(mFadeOutRight);
-                output.setOnSlideInListener(getOnSlideInListener(position));
-                getSwipeView(output);
-                output.setMinAnimDuration(animSlideDuration);
-                output.setSwipeTouchListener(mTouchListener);
+        // Nobody can swipe during a fling, recycled rows catch up once the scroll settles
+        boolean deferBinding = mDeferBindingWhileFlinging && isFlinging && convertView != null;
+        if (output == null) {
+            output = new SwipeViewGroup(parent.getContext());
+            countAllocation();
+            output.setFixedBackground(mFixedBackgrounds);
+            output.setFadeOnTranslation(mFadeOut);
+            output.setFadeOnSlideLeft(mFadeOutLeft);
+            output.setFadeOnSlideRight(mFadeOutRight);
+            output.setCoalesceLayoutUpdates(mCoalesceLayoutUpdates);
+            output.setUseHardwareLayersWhileSliding(mUseHardwareLayers);
+            output.setAnimateOnRenderThread(mAnimateOnRenderThread);
+            output.setBackgroundPool(mBackgroundLoader.getBackgroundPool());
+            output.setMeasureCache(mMeasureCache);
+            output.setOnSlideInListener(getOnSlideInListener(position));
+            getSwipeView(output);
+            output.setMinAnimDuration(animSlideDuration);
+            output.setSwipeTouchListener(mTouchListener);
+        } else {
+            getSwipeView(output);
+            if (deferBinding) {
+                output.setBackgroundsBinding(-1, mDataGeneration);
+                mHasDeferredRows = true;
             } else {
-                getSwipeView(output);
-                for (int i = 0; i < mBackgroundResIds.size(); i++) {
-                    int direction = mBackgroundResIds.keyAt(i);
-                    View bg = output.getBackground(direction);
-                    if(bg != null) {
-                        onGetBackground(false, direction, position, bg, output);
-                    }
-                }
-                output.setOnSlideInListener(getOnSlideInListener(position));
+                bindBackgrounds(output, position);
             }
+            output.setOnSlideInListener(getOnSlideInListener(position));
+        }
+        output.setMetricsListener(mMetricsListener);
+        if (mTouchListener != null)
+            mTouchListener.resetCollapseState(output);
 
-            //output.measureBackgrounds();
+        //output.measureBackgrounds();
 
-            // PERFORMANCE HACK
-            // without min height, the view is 0px, therefore all views are inflated on start
-            output.setMinimumHeight(120);
-            // END HACK
-            output.setContentView(super.getView(position, output.getContentView(), output));
-        } else {
-            output = new SwipeViewGroup(parent.getContext());
-            output.setContentView(super.getView(position, output.getContentView(), output));
-            output.setSwipeTouchListener(null);
+        // PERFORMANCE HACK
+        // without min height, the view is 0px, therefore all views are inflated on start
+        output.setMinimumHeight(120);
+        // END HACK
+        output.setContentView(super.getView(position, output.getContentView(), output));
+        if (mTouchListener != null && hasStableIds())
+            mTouchListener.bindSlideInState(output, position, getItemId(position));
+        int pendingIndex = mPendingDismisses.indexOf(position);
+        if (pendingIndex >= 0) {
+            loadBackgrounds(output, position);
+            output.setDismissed(mPendingDismisses.directionAt(pendingIndex), parent.getWidth());
+        } else if (output.isDismissed()) {
+            output.resetViewPos();
+        }
+        loadSlideInBackground(output, position);
+        if (!deferBinding) {
+            output.refreshVisibleView();
+            output.translateBackgrounds();
         }
-        output.refreshVisibleView();
-        output.translateBackgrounds();
+        if (mMetricsListener != null)
+            mMetricsListener.onPhase(SwipeMetrics.PHASE_BIND, System.nanoTime() - start);
+        if (trace)
+            SwipeTrace.endSection();
         return output;
     }
 
+    /**
+     * A row that stays open across a data change must keep showing the background it is open
+     * on. Its backgrounds may have been given back to the pool, or bound before it was open
+     * without that one.
+     */
+    private void loadSlideInBackground(SwipeViewGroup output, int position) {
+        if (!output.isSlideIn() || output.hasBackground(output.getSlideInView()))
+            return;
+        // The binding is current for the backgrounds the row has, not for the missing one
+        output.setBackgroundsBinding(-1, mDataGeneration);
+        loadBackgrounds(output, position);
+        output.measureBackgrounds();
+    }
+
+    /**
+     * Bind the backgrounds a recycled row already has to its new position. Unlike
+     * {@link #loadBackgrounds(SwipeViewGroup, int)}, no background is added.
+     */
+    private void bindBackgrounds(SwipeViewGroup output, int position) {
+        if (output.isBackgroundsBound(position, mDataGeneration))
+            return;
+        boolean isBound = false;
+        for (int i = 0; i < mBackgroundResIds.size(); i++) {
+            int direction = mBackgroundResIds.keyAt(i);
+            View bg = output.getBackground(direction);
+            if(bg != null && !output.isBackgroundPending(direction)) {
+                output.setBackgroundContentKey(direction, getBackgroundContentKey(position, direction));
+                dispatchGetBackground(!output.isBackgroundCreated(direction), direction, position, bg, output);
+                isBound = true;
+            }
+        }
+        output.setBackgroundsBinding(isBound ? position : -1, mDataGeneration);
+    }
+
+    /**
+     * Bind the rows that were recycled during a fling and are still on screen
+     */
+    private void bindDeferredRows(AbsListView listView) {
+        mHasDeferredRows = false;
+        for (int i = 0; i < listView.getChildCount(); i++) {
+            View child = listView.getChildAt(i);
+            int position = listView.getFirstVisiblePosition() + i;
+            if (child instanceof SwipeViewGroup && position < getCount()) {
+                SwipeViewGroup row = (SwipeViewGroup) child;
+                if (!row.isBackgroundsBound(position, mDataGeneration))
+                    bindBackgrounds(row, position);
+                row.refreshVisibleView();
+                row.translateBackgrounds();
+            }
+        }
+    }
+
     public void getSwipeView(SwipeViewGroup output) {
 
     }
@@ -115,41 +255,235 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
 
     }
 
+    private void dispatchGetBackground(boolean isCreate, int direction, int position, View background, SwipeViewGroup parent) {
+        final boolean trace = SwipeTrace.sEnabled;
+        if (trace)
+            SwipeTrace.beginSection(SwipeTrace.ON_GET_BACKGROUND);
+        parent.setBackgroundCreated(direction, true);
+        onGetBackground(isCreate, direction, position, background, parent);
+        if (trace)
+            SwipeTrace.endSection();
+    }
+
+    /**
+     * Set the item view types that can't be swiped. Their rows are the views of the wrapped
+     * adapter, without SwipeViewGroup around them.
+     *
+     * @param itemViewTypesWithoutExpand the item view types, as returned by getItemViewType()
+     */
     public void setItemViewTypesWithoutExpand(int... itemViewTypesWithoutExpand) {
-        itemViewTypesWithoutSwipeList.clear();
-        for(int i : itemViewTypesWithoutExpand) {
-            itemViewTypesWithoutSwipeList.add(itemViewTypesWithoutExpand[i]);
+        int size = 0;
+        for (int itemViewType : itemViewTypesWithoutExpand) {
+            if (itemViewType < 0) {
+                throw new IllegalArgumentException("Item view types must be positive ints");
+            }
+            size = Math.max(size, itemViewType + 1);
         }
+        mItemViewTypesWithoutSwipe = new boolean[size];
+        for (int itemViewType : itemViewTypesWithoutExpand)
+            mItemViewTypesWithoutSwipe[itemViewType] = true;
+    }
+
+    private boolean hasSwipe(int itemViewType) {
+        return itemViewType < 0 || itemViewType >= mItemViewTypesWithoutSwipe.length
+                || !mItemViewTypesWithoutSwipe[itemViewType];
     }
 
     public static void measureBackgrounds(ListView listView) {
-        for (int i = 0; i < listView.getChildCount(); i++)
-            ((SwipeViewGroup) listView.getChildAt(i)).measureBackgrounds();
+        for (int i = 0; i < listView.getChildCount(); i++) {
+            View child = listView.getChildAt(i);
+            if (child instanceof SwipeViewGroup)
+                ((SwipeViewGroup) child).measureBackgrounds();
+        }
     }
 
+    /**
+     * Make sure the backgrounds of the given row exist and are bound to the given position.
+     * Whether they are bound is tracked on the row itself, so the cost of this check does not
+     * depend on the size of the data set.
+     *
+     * @param output the row that is about to show its backgrounds
+     * @param position the position the row currently shows
+     */
     public void loadBackgrounds(SwipeViewGroup output, int position) {
-        if (output == null || latestPositionWithLoadedBackground == position)
+        if (output == null)
             return;
-        latestPositionWithLoadedBackground = position;
-        boolean isCreate = !positionWithBackgroundLoaded.contains(position);
-        if (isCreate)
-            positionWithBackgroundLoaded.add(position);
+        if (output.isBackgroundsBound(position, mDataGeneration))
+            return;
+        output.setBackgroundsBinding(position, mDataGeneration);
+        final boolean trace = SwipeTrace.sEnabled;
+        if (trace)
+            SwipeTrace.beginSection(SwipeTrace.LOAD_BACKGROUNDS);
+        final long start = mMetricsListener != null ? System.nanoTime() : 0;
         for (int i = 0; i < mBackgroundResIds.size(); i++) {
             int direction = mBackgroundResIds.keyAt(i);
             int layoutId = mBackgroundResIds.valueAt(i);
             int type = mBackgroundType.get(direction);
-            if (isCreate) {
-                View bg = View.inflate(output.getContext(), layoutId, null);
-                if(bg != null) {
-                    output.addBackground(bg, direction, type);
-                    onGetBackground(true, direction, position, bg, output);
+            View bg = output.getBackground(direction);
+            if (bg == null) {
+                // The row may have given its backgrounds back to the pool when it was recycled
+                if (mAsyncInflation)
+                    bg = mBackgroundLoader.poll(layoutId);
+                else
+                    bg = mBackgroundLoader.acquire(output.getContext(), layoutId);
+                if (bg != null) {
+                    output.addBackground(bg, direction, type, layoutId);
+                    output.setBackgroundContentKey(direction, getBackgroundContentKey(position, direction));
+                    dispatchGetBackground(true, direction, position, bg, output);
+                } else if (mAsyncInflation) {
+                    mBackgroundLoader.inflateAsync(output, direction, type, layoutId);
                 }
-            } else {
-                View bg = output.getBackground(direction);
-                if (bg != null)
-                    onGetBackground(false, direction, position, bg, output);
+            } else if (!output.isBackgroundPending(direction)) {
+                output.setBackgroundContentKey(direction, getBackgroundContentKey(position, direction));
+                dispatchGetBackground(!output.isBackgroundCreated(direction), direction, position, bg, output);
             }
         }
+        for (int i = 0; i < mBackgroundDrawers.size(); i++) {
+            int direction = mBackgroundDrawers.keyAt(i);
+            SwipeBackgroundDrawer drawer = mBackgroundDrawers.valueAt(i);
+            if (output.getBackgroundDrawer(direction) != drawer)
+                output.addBackground(drawer, direction, mBackgroundType.get(direction));
+        }
+        if (mMetricsListener != null)
+            mMetricsListener.onPhase(SwipeMetrics.PHASE_LOAD_BACKGROUNDS, System.nanoTime() - start);
+        if (trace)
+            SwipeTrace.endSection();
+    }
+
+    /**
+     * Share a pool of background views with other adapters, for example the tabs of a ViewPager.
+     * Each adapter has its own pool by default. Must be called before the first row is created.
+     *
+     * @param backgroundPool the pool to take backgrounds from and give them back to
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeViewAdapter setBackgroundPool(SwipeBackgroundPool backgroundPool) {
+        if (backgroundPool == null) {
+            throw new IllegalArgumentException("The background pool can't be null");
+        }
+        mBackgroundLoader.setBackgroundPool(backgroundPool);
+        return this;
+    }
+
+    public SwipeBackgroundPool getBackgroundPool() {
+        return mBackgroundLoader.getBackgroundPool();
+    }
+
+    /**
+     * Reuse the measured heights of the backgrounds across rows instead of measuring each
+     * background when it is bound. Backgrounds of the same layout share a height, unless
+     * {@link #getBackgroundContentKey(int, int)} tells them apart. Disabled by default. Must be
+     * called before the first row is created.
+     *
+     * @param measureCache the cache of measured heights, or null to measure every background
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeViewAdapter setMeasureCache(SwipeMeasureCache measureCache) {
+        this.mMeasureCache = measureCache;
+        return this;
+    }
+
+    /**
+     * Set whether recycled rows skip binding their backgrounds while the list flings. The rows
+     * still on screen are bound once the fling ends, so only the rows that were scrolled past
+     * are never bound.
+     *
+     * @param deferBindingWhileFlinging true to defer background binding during flings
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeViewAdapter setDeferBindingWhileFlinging(boolean deferBindingWhileFlinging) {
+        this.mDeferBindingWhileFlinging = deferBindingWhileFlinging;
+        return this;
+    }
+
+    /**
+     * Set whether backgrounds are prepared while the list is idle: the visible rows load and
+     * measure their backgrounds, then the background pool is filled for the rows that scroll in
+     * next. The work is split in slices of a few milliseconds per frame, and stops as soon as the
+     * list scrolls or a row slides. Must be called before setListView(ListView).
+     *
+     * @param idlePrefetch true to prefetch backgrounds while the list is idle
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeViewAdapter setIdlePrefetch(boolean idlePrefetch) {
+        this.mIdlePrefetch = idlePrefetch;
+        return this;
+    }
+
+    /**
+     * Record the touch events that reach the list, to replay a session of real gestures, see
+     * {@link SwipeMotionTrace}. Costs a few array writes per event while set.
+     *
+     * @param motionTrace the trace to record to, or null to stop recording
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeViewAdapter setMotionTrace(SwipeMotionTrace motionTrace) {
+        this.mMotionTrace = motionTrace;
+        if (mTouchListener != null)
+            mTouchListener.setMotionTrace(motionTrace);
+        return this;
+    }
+
+    /**
+     * Report the cost of binds, background loads and inflations, measures, layout requests,
+     * animation frames and dismisses, see {@link SwipeMetrics}. Nothing is timed while no
+     * listener is set.
+     *
+     * @param metricsListener the listener, or null to stop reporting
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeViewAdapter setMetricsListener(SwipeMetricsListener metricsListener) {
+        this.mMetricsListener = metricsListener;
+        mBackgroundLoader.setMetricsListener(metricsListener);
+        return this;
+    }
+
+    public SwipeMeasureCache getMeasureCache() {
+        return mMeasureCache;
+    }
+
+    /**
+     * Set whether backgrounds that are not in the background pool are inflated on a worker
+     * thread. A placeholder from {@link #onCreatePlaceholder(int, SwipeViewGroup)} is shown until
+     * the background is ready, so the first swipe of a row doesn't wait for the inflation.
+     * Background layouts must then be safe to inflate off the main thread.
+     *
+     * @param asyncInflation true to inflate backgrounds on a worker thread
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeViewAdapter setAsyncInflation(boolean asyncInflation) {
+        this.mAsyncInflation = asyncInflation;
+        return this;
+    }
+
+    /**
+     * Create the view shown in place of a background while it is inflated in async inflation
+     * mode. Override to show something closer to the real background, it should stay cheap.
+     *
+     * @param direction the direction of the background
+     * @param parent the row the placeholder is added to
+     * @return the placeholder view
+     */
+    public View onCreatePlaceholder(int direction, SwipeViewGroup parent) {
+        return new View(parent.getContext());
+    }
+
+    /**
+     * Override to tell apart backgrounds of the same layout whose height depends on the item
+     * they show, when a measure cache is set. Backgrounds with the same key share a height.
+     *
+     * @param position the position of the item
+     * @param direction the direction of the background
+     * @return the key of the content of the background, 0 by default
+     */
+    public long getBackgroundContentKey(int position, int direction) {
+        return 0;
     }
 
     /**
@@ -161,7 +495,8 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
      */
     @Override
     public boolean hasActions(int position) {
-        return mSwipeActionListener != null && mSwipeActionListener.hasActions(position);
+        return mSwipeActionListener != null && mSwipeActionListener.hasActions(position)
+                && mPendingDismisses.indexOf(position) < 0;
     }
 
     /**
@@ -174,8 +509,120 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
      */
     @Override
     public void onSwipeToDismiss(int position, int direction){
-        if (mSwipeActionListener != null)
+        if (mBatchDismissListener != null) {
+            addPendingDismiss(position, direction);
+            return;
+        }
+        if (mSwipeActionListener != null) {
+            long start = mMetricsListener != null ? System.nanoTime() : 0;
             mSwipeActionListener.onSwipeToDismiss(position, direction);
+            if (mMetricsListener != null)
+                mMetricsListener.onPhase(SwipeMetrics.PHASE_DISMISS, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Collect dismisses and deliver them together to the given listener, once no row was
+     * dismissed for windowMillis. Dismissed rows stay swiped out, showing their background, until
+     * then, and can be brought back with {@link #undoDismiss(int)}. The data of the wrapped
+     * adapter is not touched during the window, so its positions should not change meanwhile.
+     * onSwipeToDismiss() of the SwipeActionListener is not called for collected dismisses.
+     *
+     * @param batchDismissListener the listener, or null to deliver every dismiss right away
+     * @param windowMillis how long to wait for more dismisses, in milliseconds
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeViewAdapter setBatchDismissListener(BatchDismissListener batchDismissListener, long windowMillis) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("Must be a positive long");
+        }
+        commitDismisses();
+        this.mBatchDismissListener = batchDismissListener;
+        this.mDismissWindowMillis = windowMillis;
+        updateCollapseOnDismiss();
+        return this;
+    }
+
+    /**
+     * Set whether dismissed rows collapse before onSwipeToDismiss() is called, see
+     * {@link SwipeViewTouchListener#setCollapseOnDismiss(boolean)}. The app is then expected to
+     * remove the item in onSwipeToDismiss(). Rows are not collapsed while a batch dismiss listener
+     * is set, since they stay swiped out until the batch is delivered.
+     *
+     * @param collapseOnDismiss true to collapse dismissed rows
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeViewAdapter setCollapseOnDismiss(boolean collapseOnDismiss) {
+        this.mCollapseOnDismiss = collapseOnDismiss;
+        updateCollapseOnDismiss();
+        return this;
+    }
+
+    private void updateCollapseOnDismiss() {
+        if (mTouchListener != null)
+            mTouchListener.setCollapseOnDismiss(mCollapseOnDismiss && mBatchDismissListener == null);
+    }
+
+    private void addPendingDismiss(int position, int direction) {
+        mPendingDismisses.add(position, direction);
+        SwipeViewGroup view = getViewAtPosition(position);
+        if (view != null)
+            view.setDismissed(direction, view.getWidth());
+        mHandler.removeCallbacks(mCommitDismissesRunnable);
+        mHandler.postDelayed(mCommitDismissesRunnable, mDismissWindowMillis);
+    }
+
+    private SwipeViewGroup getViewAtPosition(int position) {
+        return mTouchListener == null ? null : mTouchListener.getViewAtPosition(position);
+    }
+
+    /**
+     * Cancel a dismiss that was not delivered yet, and slide its row back
+     *
+     * @param position the position of the dismissed item
+     * @return true if the dismiss was still pending
+     */
+    public boolean undoDismiss(int position) {
+        if (!mPendingDismisses.remove(position))
+            return false;
+        if (mPendingDismisses.size() == 0)
+            mHandler.removeCallbacks(mCommitDismissesRunnable);
+        SwipeViewGroup view = getViewAtPosition(position);
+        if (view != null)
+            view.slideBack();
+        return true;
+    }
+
+    /**
+     * Cancel all the dismisses that were not delivered yet
+     */
+    @SuppressWarnings("unused")
+    public void undoDismisses() {
+        while (mPendingDismisses.size() > 0)
+            undoDismiss(mPendingDismisses.positionAt(0));
+    }
+
+    /**
+     * Deliver the pending dismisses now, without waiting for the end of the window
+     */
+    public void commitDismisses() {
+        mHandler.removeCallbacks(mCommitDismissesRunnable);
+        if (mPendingDismisses.size() == 0)
+            return;
+        int[] positions = mPendingDismisses.copyPositions();
+        int[] directions = mPendingDismisses.copyDirections();
+        mPendingDismisses.clear();
+        // The rows stay hidden until the wrapped adapter removes the items and notifies
+        long start = mMetricsListener != null ? System.nanoTime() : 0;
+        mBatchDismissListener.onSwipeToDismiss(positions, directions);
+        if (mMetricsListener != null)
+            mMetricsListener.onPhase(SwipeMetrics.PHASE_DISMISS, System.nanoTime() - start);
+    }
+
+    public int getPendingDismissCount() {
+        return mPendingDismisses.size();
     }
 
     @Override
@@ -271,6 +718,46 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
         return this;
     }
 
+    /**
+     * Set whether rows update their layout at most once per frame while they slide, instead of
+     * on every touch event and animation tick. Must be called before the first row is created.
+     *
+     * @param coalesceLayoutUpdates true to coalesce layout updates per frame
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeViewAdapter setCoalesceLayoutUpdates(boolean coalesceLayoutUpdates) {
+        this.mCoalesceLayoutUpdates = coalesceLayoutUpdates;
+        return this;
+    }
+
+    /**
+     * Set whether rows render their content and visible background into hardware layers while
+     * they slide. Must be called before the first row is created.
+     *
+     * @param useHardwareLayers true to use hardware layers while sliding
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeViewAdapter setUseHardwareLayersWhileSliding(boolean useHardwareLayers) {
+        this.mUseHardwareLayers = useHardwareLayers;
+        return this;
+    }
+
+    /**
+     * Set whether rows run slide animations that don't change their height with a
+     * ViewPropertyAnimator, on the RenderThread where available. Must be called before the first
+     * row is created.
+     *
+     * @param animateOnRenderThread true to use the ViewPropertyAnimator when possible
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeViewAdapter setAnimateOnRenderThread(boolean animateOnRenderThread) {
+        this.mAnimateOnRenderThread = animateOnRenderThread;
+        return this;
+    }
+
     public SwipeViewAdapter setCanSlideIn(boolean canSlideIn){
         this.canSlideIn = canSlideIn;
         if (mTouchListener != null)
@@ -278,6 +765,22 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
         return this;
     }
 
+    /**
+     * Set whether rows settle from the velocity of the finger when it is released, instead of
+     * with the fixed slide duration. Fast swipes then finish in as little time as their velocity
+     * allows.
+     *
+     * @param velocitySettle true to settle rows from the release velocity
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeViewAdapter setVelocitySettle(boolean velocitySettle) {
+        this.mVelocitySettle = velocitySettle;
+        if (mTouchListener != null)
+            mTouchListener.setVelocitySettle(velocitySettle);
+        return this;
+    }
+
     /**
      * Set the fraction of the View Width that needs to be swiped before it is counted as a far swipe
      *
@@ -316,7 +819,7 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
      *
      * @param direction Integer const from SwipeDirections
      */
-    public SwipeViewAdapter addEnabledDirection(Integer direction, Integer type) {
+    public SwipeViewAdapter addEnabledDirection(int direction, int type) {
         mTouchListener.addEnabledDirection(direction);
         mBackgroundType.put(direction, type);
         return this;
@@ -328,7 +831,19 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
      * @param listView the ListView to which the adapter will be attached
      * @return A reference to the current instance so that commands can be chained
      */
-    public SwipeViewAdapter setListView(ListView listView) {
+    public SwipeViewAdapter setListView(final ListView listView) {
+        if (mListView != null) {
+            // Stop listening to the previous ListView
+            unregisterDataSetObserver(mDataChangeObserver);
+            mListView.getViewTreeObserver().removeGlobalOnLayoutListener(mDataChangeLayoutListener);
+            mTouchListener.detach();
+            if (mListView != listView) {
+                mListView.setOnTouchListener(null);
+                mListView.setOnScrollListener(null);
+                mListView.setRecyclerListener(null);
+            }
+        }
+        mListView = listView;
         mTouchListener = new SwipeViewTouchListener(listView, this);
         listView.setOnTouchListener(mTouchListener);
         listView.setOnScrollListener(new AbsListView.OnScrollListener() {
@@ -336,9 +851,16 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
             public void onScrollStateChanged(AbsListView absListView, int scrollState) {
                 mTouchListener.onScrollStateChanged(absListView, scrollState);
                 isFlinging = scrollState == SCROLL_STATE_FLING;
+                if (mHasDeferredRows && !isFlinging)
+                    bindDeferredRows(absListView);
+                if (mPrefetcher != null) {
+                    if (scrollState == SCROLL_STATE_IDLE)
+                        mPrefetcher.start();
+                    else
+                        mPrefetcher.stop();
+                }
                 if (mSwipeActionListener != null)
                     mSwipeActionListener.onScrollStateChanged(absListView, scrollState);
-                latestPositionWithLoadedBackground = -1;
             }
 
             @Override
@@ -347,12 +869,27 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
                     mSwipeActionListener.onScroll(absListView, i, i1, i2);
             }
         });
+        listView.setRecyclerListener(new AbsListView.RecyclerListener() {
+            @Override
+            public void onMovedToScrapHeap(View view) {
+                if (mRecyclerListener != null)
+                    mRecyclerListener.onMovedToScrapHeap(view);
+                // Offscreen rows don't need their backgrounds, let the other rows use them. A data
+                // change scraps every row on screen, those are bound again right away and keep them.
+                if (view instanceof SwipeViewGroup && !mDataChangePending)
+                    ((SwipeViewGroup) view).recycleBackgrounds();
+            }
+        });
+        registerDataSetObserver(mDataChangeObserver);
+        listView.getViewTreeObserver().addOnGlobalLayoutListener(mDataChangeLayoutListener);
         listView.setClipChildren(false);
         mTouchListener.setOnSwipeActionTouchListener(new SwipeViewTouchListener.OnSwipeActionTouchListener() {
             @Override
             public void onSliding(SwipeViewGroup swipeViewGroup, int position) {
                 if (mSwipeActionListener != null)
                     mSwipeActionListener.onSliding(swipeViewGroup, position);
+                if (mPrefetcher != null)
+                    mPrefetcher.stop();
                 slideInView(-1);
                 loadBackgrounds(swipeViewGroup, position);
                 //swipeViewGroup.measureBackgrounds();
@@ -360,9 +897,47 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
         });
         mTouchListener.setNormalSwipeFraction(mNormalSwipeFraction);
         mTouchListener.setFarSwipeFraction(mFarSwipeFraction);
+        mTouchListener.setVelocitySettle(mVelocitySettle);
+        mTouchListener.setMotionTrace(mMotionTrace);
+        updateCollapseOnDismiss();
+        if (mIdlePrefetch) {
+            mPrefetcher = new SwipeBackgroundPrefetcher(listView, new SwipeBackgroundPrefetcher.PrefetchStep() {
+                @Override
+                public boolean onPrefetchStep(int step) {
+                    return prefetchBackgrounds(listView, step);
+                }
+            });
+            mPrefetcher.start();
+        }
         return this;
     }
+    private boolean prefetchBackgrounds(ListView listView, int step) {
+        int childCount = listView.getChildCount();
+        if (step >= childCount)
+            return mBackgroundLoader.prefetchPool(listView.getContext(), mBackgroundResIds, step - childCount);
+        View child = listView.getChildAt(step);
+        int position = listView.getFirstVisiblePosition() + step;
+        if (child instanceof SwipeViewGroup && position < getCount()
+                && (mSwipeActionListener == null || mSwipeActionListener.hasActions(position))) {
+            SwipeViewGroup row = (SwipeViewGroup) child;
+            loadBackgrounds(row, position);
+            row.measureBackgrounds();
+        }
+        return true;
+    }
+
+    // Report an object created while binding a row
+    private void countAllocation() {
+        if (mMetricsListener != null)
+            mMetricsListener.onPhase(SwipeMetrics.PHASE_ALLOCATION, 0);
+    }
+
+    public SwipeViewTouchListener getTouchListener() {
+        return mTouchListener;
+    }
+
     private SwipeViewGroup.OnSlideIn getOnSlideInListener(final int position) {
+        countAllocation();
         return new SwipeViewGroup.OnSlideIn() {
             @Override
             public void onSlideIn(SwipeViewGroup view) {
@@ -385,8 +960,9 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
      * @return A reference to the current instance so that commands can be chained
      */
     public SwipeViewAdapter addBackground(int key, int layoutId, int type){
-        if(SwipeDirections.getAllDirections().contains(key)) {
+        if(SwipeDirections.isDirection(key)) {
             mBackgroundResIds.put(key, layoutId);
+            mBackgroundDrawers.remove(key);
             addEnabledDirection(key, type);
         }
         return this;
@@ -396,17 +972,50 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
         return addBackground(key, resId, SwipeViewGroup.LAYOUT_MATCH_PARENT);
     }
 
+    /**
+     * Add a background drawn by the rows instead of inflated, see {@link SwipeBackgroundDrawer}.
+     * It adds no view to the rows, so it is never inflated, measured or laid out. The drawer is
+     * shared by all the rows and onGetBackground() is not called for it.
+     *
+     * @param key the identifier of the callback for which this background should be shown
+     * @param drawer draws the background in the area revealed by the swipe
+     * @param type LAYOUT_MATCH_PARENT, or LAYOUT_DISMISS to shrink the row to 0
+     * @return A reference to the current instance so that commands can be chained
+     */
+    public SwipeViewAdapter addBackground(int key, SwipeBackgroundDrawer drawer, int type) {
+        if (drawer == null) {
+            throw new IllegalArgumentException("The drawer can't be null");
+        }
+        if (type != SwipeViewGroup.LAYOUT_MATCH_PARENT && type != SwipeViewGroup.LAYOUT_DISMISS) {
+            throw new IllegalArgumentException("Must be LAYOUT_MATCH_PARENT or LAYOUT_DISMISS");
+        }
+        if(SwipeDirections.isDirection(key)) {
+            mBackgroundDrawers.put(key, drawer);
+            mBackgroundResIds.delete(key);
+            addEnabledDirection(key, type);
+        }
+        return this;
+    }
+
+    public SwipeViewAdapter addBackground(int key, SwipeBackgroundDrawer drawer) {
+        return addBackground(key, drawer, SwipeViewGroup.LAYOUT_MATCH_PARENT);
+    }
+
     @Override
     public void notifyDataSetChanged() {
         super.notifyDataSetChanged();
-        positionWithBackgroundLoaded.clear();
+        // The backgrounds of every row are bound again, as the items may have changed
+        mDataGeneration++;
+        // With stable ids, rows keep their slide in state as long as they show the same item
+        if (hasStableIds() && mTouchListener != null)
+            mTouchListener.onDataSetChanged();
         //slideBack();
     }
 
     @Override
     public void notifyDataSetInvalidated() {
         super.notifyDataSetInvalidated();
-        positionWithBackgroundLoaded.clear();
+        mDataGeneration++;
     }
 
     /**
@@ -420,10 +1029,37 @@ public class SwipeViewAdapter extends WrappingAdapter implements SwipeViewTouchL
         return this;
     }
 
+    /**
+     * Set a {@link AbsListView.RecyclerListener} for the ListView. The adapter uses the recycler
+     * listener of the ListView itself, use this instead of ListView.setRecyclerListener().
+     *
+     * @param recyclerListener the listener, called before the adapter recycles the backgrounds
+     * @return A reference to the current instance so that commands can be chained
+     */
+    @SuppressWarnings("unused")
+    public SwipeViewAdapter setRecyclerListener(AbsListView.RecyclerListener recyclerListener) {
+        this.mRecyclerListener = recyclerListener;
+        return this;
+    }
+
     public void setAnimSlideDuration(int animSlideDuration) {
         this.animSlideDuration = animSlideDuration;
     }
 
+    /**
+     * Interface that listeners of batched dismisses should implement
+     */
+    public interface BatchDismissListener {
+        /**
+         * Called once the dismiss window is over, with every item dismissed during the window
+         *
+         * @param positions the positions of the dismissed items, sorted in descending order so
+         *                  they can be removed one after another
+         * @param directions the direction each item was dismissed in, in the same order
+         */
+        void onSwipeToDismiss(int[] positions, int[] directions);
+    }
+
     /**
      * Interface that listeners of swipe events should implement
      */
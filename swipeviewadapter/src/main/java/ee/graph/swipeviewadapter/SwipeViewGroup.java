@@ -18,13 +18,17 @@ package ee.graph.swipeviewadapter;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
+import android.animation.TimeInterpolator;
 import android.animation.ValueAnimator;
 import android.content.Context;
+import android.graphics.Canvas;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
-import android.util.SparseArray;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewTreeObserver;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.DecelerateInterpolator;
 import android.widget.Checkable;
 import android.widget.FrameLayout;
 
@@ -49,20 +53,36 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
     private static final int
             MATCH = LayoutParams.MATCH_PARENT,
             WRAP = LayoutParams.WRAP_CONTENT,
-            HEIGHT_MEASURE_SPEC = MeasureSpec.makeMeasureSpec(1000, MeasureSpec.AT_MOST);
+            // Backgrounds are measured at their full height, the content view within a 1000px cap
+            HEIGHT_MEASURE_SPEC = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED),
+            CONTENT_HEIGHT_MEASURE_SPEC = MeasureSpec.makeMeasureSpec(1000, MeasureSpec.AT_MOST);
 
     private static final float
             mExpandSwipeRatio = 0.55f;
 
-    private SparseArray<Integer>
-            mBackgroundHeight = new SparseArray<>(),
-            mBackgroundType = new SparseArray<>();
-    private SparseArray<View>
-            mBackgroundMap = new SparseArray<>();
+    // Velocity settles start at the finger speed and decelerate, see SwipeMath.getSettleDuration()
+    private static final TimeInterpolator
+            SLIDE_INTERPOLATOR = new AccelerateDecelerateInterpolator(),
+            SETTLE_INTERPOLATOR = new DecelerateInterpolator();
+
+    // Per direction state, indexed with SwipeDirections.indexOf(direction)
+    // A type of 0 means there is no background for that direction
+    private final int[]
+            mBackgroundHeight = new int[SwipeDirections.DIRECTION_COUNT],
+            mBackgroundType = new int[SwipeDirections.DIRECTION_COUNT],
+            mBackgroundLayoutIds = new int[SwipeDirections.DIRECTION_COUNT];
+    private final long[]
+            mBackgroundContentKeys = new long[SwipeDirections.DIRECTION_COUNT];
+    private final View[]
+            mBackgroundViews = new View[SwipeDirections.DIRECTION_COUNT];
+    // Backgrounds drawn in dispatchDraw(), a direction has either a view or a drawer
+    private final SwipeBackgroundDrawer[]
+            mBackgroundDrawers = new SwipeBackgroundDrawer[SwipeDirections.DIRECTION_COUNT];
+    private SwipeBackgroundPool mBackgroundPool;
+    private SwipeMeasureCache mMeasureCache;
+    private SwipeMetricsListener mMetricsListener;
 
     private View contentView = null;
-    private List<Integer> mBackgroundMatchParent = new ArrayList<>();
-    private List<Integer> mBackgroundAutoLayout = new ArrayList<>();
     private OnTouchListener swipeTouchListener;
 
     private int
@@ -74,8 +94,12 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
             mLayoutParamHeight = MATCH,
             mLayoutParamWidth = MATCH,
             mMinAnimDuration,
-            mMaxAnimDuration,
-            mWidthMeasureSpec = MeasureSpec.makeMeasureSpec(getWidth(), MeasureSpec.EXACTLY);
+            mWidthMeasureSpec = MeasureSpec.makeMeasureSpec(getWidth(), MeasureSpec.EXACTLY),
+            mBackgroundsPosition = -1,
+            mBackgroundsGeneration = 0,
+            mPendingBackgrounds = 0,
+            mCreatedBackgrounds = 0,
+            mDrawnBackgrounds = 0; // bitmask of SwipeDirections.maskOf(direction)
 
     private boolean
             mViewIsInitialized = false,
@@ -83,7 +107,86 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
             fadeOnSlideRight = true,
             fixedBackground,
             fadeOnTranslation,
-            isChecked;
+            isChecked,
+            mCoalesceLayoutUpdates = false,
+            mUpdatePending = false,
+            mUseHardwareLayers = false,
+            mDismissed = false;
+
+    // Views promoted to a hardware layer while the row slides, with the layer type to restore
+    private View
+            mLayeredContentView,
+            mLayeredBackground;
+    private int
+            mContentLayerType,
+            mBackgroundLayerType;
+
+    // One animator per row, reused by every slide
+    private ValueAnimator mTranslationAnimator;
+    private float
+            mAnimateFromX,
+            mAnimateToX;
+    private boolean
+            mAnimateOnRenderThread = false,
+            mIsAnimatingOnRenderThread = false;
+    // Listener of the running animation, called once when it ends or is cancelled
+    private AnimatorListenerAdapter mAnimatorListener;
+    private Animator mRunningAnimation;
+    private OnSlideBack mOnSlideBack;
+
+    private final ValueAnimator.AnimatorUpdateListener mTranslationUpdateListener = new ValueAnimator.AnimatorUpdateListener() {
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            // Interpolated from the fraction, getAnimatedValue() would box a Float every frame
+            setTranslationX(mAnimateFromX + (mAnimateToX - mAnimateFromX) * animation.getAnimatedFraction(), true);
+        }
+    };
+
+    private final AnimatorListenerAdapter mTranslationListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationStart(Animator animation) {
+            mRunningAnimation = animation;
+            if (mAnimatorListener != null)
+                mAnimatorListener.onAnimationStart(animation);
+        }
+
+        @Override
+        public void onAnimationCancel(Animator animation) {
+            // A cancelled animation never reaches its end action, a dismiss or a slide back
+            AnimatorListenerAdapter listener = mAnimatorListener;
+            mAnimatorListener = null;
+            mOnSlideBack = null;
+            if (listener != null)
+                listener.onAnimationCancel(animation);
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            finishTranslationAnimation();
+            AnimatorListenerAdapter listener = mAnimatorListener;
+            mAnimatorListener = null;
+            if (listener != null)
+                listener.onAnimationEnd(animation);
+        }
+    };
+
+    private final AnimatorListenerAdapter mSlideBackListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            OnSlideBack listener = mOnSlideBack;
+            mOnSlideBack = null;
+            if (listener != null)
+                resetOnEndAnim(listener, animation);
+        }
+    };
+
+    private final Runnable mUpdateViewRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mUpdatePending)
+                updateView();
+        }
+    };
 
     private OnSlidingListener onSlidingListener;
     private OnSlideIn onSlideInListener;
@@ -135,7 +238,6 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
         setClipChildren(false);
         mMinAnimDuration = getContext().getResources().getInteger(
                 android.R.integer.config_shortAnimTime);
-        mMaxAnimDuration = mMinAnimDuration * 3;
         getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
             @SuppressWarnings("deprecation")
             @Override
@@ -159,6 +261,7 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
      * @return A reference to the layout so commands can be chained
      */
     public SwipeViewGroup setContentView(final View contentView) {
+        stopSlideLayers();
         if (mViewIsInitialized) {
             if(this.contentView != null)
                 removeView(this.contentView);
@@ -177,6 +280,25 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
 
 
 
+    /**
+     * Same as {@link #setContentView(View)}, but the contentView is added right away instead of
+     * after the first layout of the row. Rows that are measured before they are laid out, like
+     * the ViewHolders a RecyclerView creates to fill the screen, then measure to the height of
+     * their content instead of 0.
+     *
+     * @param contentView The View to be added
+     * @return A reference to the layout so commands can be chained
+     */
+    public SwipeViewGroup setContentViewNow(final View contentView) {
+        setContentView(contentView);
+        if (!mViewIsInitialized && contentView.getParent() == null)
+            addView(contentView);
+        return this;
+    }
+
+
+
+
     /**
      * Add a View to the background of the Layout.
      *
@@ -186,27 +308,47 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
      * @return A reference to the a layout so commands can be chained
      */
     public SwipeViewGroup addBackground(final View background, final int direction, final int type) {
-        if(mBackgroundMap.get(direction) != null)
-            removeView(mBackgroundMap.get(direction));
-        mBackgroundMap.put(direction, background);
-        mBackgroundType.put(direction, type);
+        return addBackground(background, direction, type, 0);
+    }
+
+    /**
+     * Add a View to the background of the Layout. The View replaced by this one goes back to the
+     * background pool, if any.
+     *
+     * @param background The View to be added to the Layout
+     * @param direction The key to be used to find it again
+     * @param type int -1 -2 -3 if set to wrap_content, the row height will be resized to the background height when shown, if set to dismiss, the row will shrink to 0
+     * @param layoutId the resource Id the View was inflated from, 0 if unknown
+     * @return A reference to the a layout so commands can be chained
+     */
+    public SwipeViewGroup addBackground(final View background, final int direction, final int type, final int layoutId) {
+        final int index = SwipeDirections.indexOf(direction);
+        View oldBackground = mBackgroundViews[index];
+        if(oldBackground != null && oldBackground != background) {
+            removeView(oldBackground);
+            releaseBackground(oldBackground, mBackgroundLayoutIds[index]);
+        }
+        mBackgroundViews[index] = background;
+        mBackgroundDrawers[index] = null;
+        mDrawnBackgrounds &= ~SwipeDirections.maskOf(direction);
+        mBackgroundType[index] = type;
+        mBackgroundLayoutIds[index] = layoutId;
+        mPendingBackgrounds &= ~SwipeDirections.maskOf(direction);
+        mCreatedBackgrounds &= ~SwipeDirections.maskOf(direction);
         //refreshVisibleView();
         background.setVisibility(slideInView == direction ? VISIBLE : INVISIBLE);
         addView(background, 0);
         translateBackgrounds();
-        if(type == LAYOUT_MATCH_PARENT) {
-            mBackgroundMatchParent.remove((Integer) direction);
-            mBackgroundMatchParent.add(direction);
-        } else if(type == LAYOUT_AUTOLAYOUT) {
-            mBackgroundAutoLayout.remove((Integer) direction);
-            mBackgroundAutoLayout.add(direction);
-        } else {
+        if(type != LAYOUT_MATCH_PARENT && type != LAYOUT_AUTOLAYOUT) {
             //measureBackground(direction);
+            countAllocation();
             background.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
             @Override
             public boolean onPreDraw() {
             background.getViewTreeObserver().removeOnPreDrawListener(this);
-                measureBackground(direction);
+                // The background may have moved to another row in the meantime
+                if (mBackgroundViews[index] == background)
+                    measureBackground(direction);
                 return true;
             }
             });
@@ -214,16 +356,208 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
         return this;
     }
 
+    /**
+     * Add a background drawn by the row itself, in place of a view. The view of the direction, if
+     * any, is removed and goes back to the background pool.
+     *
+     * @param drawer Draws the background in the area revealed by the swipe
+     * @param direction The key to be used to find it again
+     * @param type LAYOUT_MATCH_PARENT, or LAYOUT_DISMISS to shrink the row to 0. A drawn background
+     *             has no height of its own to wrap or lay out.
+     * @return A reference to the a layout so commands can be chained
+     */
+    public SwipeViewGroup addBackground(final SwipeBackgroundDrawer drawer, final int direction, final int type) {
+        if (type != LAYOUT_MATCH_PARENT && type != LAYOUT_DISMISS) {
+            throw new IllegalArgumentException("Must be LAYOUT_MATCH_PARENT or LAYOUT_DISMISS");
+        }
+        final int index = SwipeDirections.indexOf(direction);
+        View oldBackground = mBackgroundViews[index];
+        if (oldBackground != null) {
+            removeView(oldBackground);
+            releaseBackground(oldBackground, mBackgroundLayoutIds[index]);
+        }
+        mBackgroundViews[index] = null;
+        mBackgroundDrawers[index] = drawer;
+        mDrawnBackgrounds |= SwipeDirections.maskOf(direction);
+        mBackgroundType[index] = type;
+        mBackgroundHeight[index] = 0;
+        mBackgroundLayoutIds[index] = 0;
+        mPendingBackgrounds &= ~SwipeDirections.maskOf(direction);
+        mCreatedBackgrounds &= ~SwipeDirections.maskOf(direction);
+        invalidate();
+        return this;
+    }
+
     public View getBackground(int direction){
-        return mBackgroundMap.get(direction);
+        return SwipeDirections.isDirection(direction) ? mBackgroundViews[SwipeDirections.indexOf(direction)] : null;
+    }
+
+    public SwipeBackgroundDrawer getBackgroundDrawer(int direction) {
+        return SwipeDirections.isDirection(direction) ? mBackgroundDrawers[SwipeDirections.indexOf(direction)] : null;
+    }
+
+    /**
+     * @return true if the direction has a background, a view or a drawn one
+     */
+    public boolean hasBackground(int direction) {
+        return getBackground(direction) != null || getBackgroundDrawer(direction) != null;
+    }
+
+    /**
+     * Remove all backgrounds from the Layout and give them back to the background pool, so other
+     * rows can use them. Should only be called while the row is not visible.
+     */
+    public void recycleBackgrounds() {
+        // A row recycled mid slide still holds the hardware layers of the slide
+        stopSlideLayers();
+        for (int i = 0; i < SwipeDirections.DIRECTION_COUNT; i++) {
+            View background = mBackgroundViews[i];
+            if (background != null) {
+                removeView(background);
+                releaseBackground(background, mBackgroundLayoutIds[i]);
+            }
+            mBackgroundViews[i] = null;
+            mBackgroundDrawers[i] = null;
+            mBackgroundType[i] = 0;
+            mBackgroundHeight[i] = 0;
+            mBackgroundLayoutIds[i] = 0;
+            mBackgroundContentKeys[i] = 0;
+        }
+        mPendingBackgrounds = 0;
+        mCreatedBackgrounds = 0;
+        mDrawnBackgrounds = 0;
+        mBackgroundsPosition = -1;
+    }
+
+    /**
+     * Remember which adapter position the backgrounds were last bound to. The adapter keeps this
+     * on the row rather than in a list of positions, since a recycled row keeps its backgrounds
+     * whatever position it now shows.
+     *
+     * @param position the adapter position, -1 if the backgrounds need to be bound again
+     * @param generation the data set generation of the adapter at bind time
+     */
+    void setBackgroundsBinding(int position, int generation) {
+        mBackgroundsPosition = position;
+        mBackgroundsGeneration = generation;
+    }
+
+    int getBackgroundsPosition() {
+        return mBackgroundsPosition;
+    }
+
+    /**
+     * Mark the background of a direction as a placeholder, while the real background is being
+     * inflated. Adding a background clears the mark.
+     */
+    void setBackgroundPending(int direction, boolean pending) {
+        if (pending)
+            mPendingBackgrounds |= SwipeDirections.maskOf(direction);
+        else
+            mPendingBackgrounds &= ~SwipeDirections.maskOf(direction);
+    }
+
+    boolean isBackgroundPending(int direction) {
+        return (mPendingBackgrounds & SwipeDirections.maskOf(direction)) != 0;
+    }
+
+    /**
+     * Mark the background of a direction as passed to onGetBackground() with isCreate set. A
+     * background inflated on the worker thread while the row was not bound is only created when
+     * the row is bound again. Adding a background clears the mark.
+     */
+    void setBackgroundCreated(int direction, boolean created) {
+        if (created)
+            mCreatedBackgrounds |= SwipeDirections.maskOf(direction);
+        else
+            mCreatedBackgrounds &= ~SwipeDirections.maskOf(direction);
+    }
+
+    boolean isBackgroundCreated(int direction) {
+        return (mCreatedBackgrounds & SwipeDirections.maskOf(direction)) != 0;
+    }
+
+    boolean isBackgroundsBound(int position, int generation) {
+        return mBackgroundsPosition != -1 && mBackgroundsPosition == position && mBackgroundsGeneration == generation;
+    }
+
+    private void releaseBackground(View background, int layoutId) {
+        if (mBackgroundPool == null || layoutId == 0)
+            return;
+        background.setAlpha(1.f);
+        background.setTranslationX(0);
+        background.setVisibility(VISIBLE);
+        // The next row to take it from the pool may not use hardware layers
+        if (background.getLayerType() == ViewCompat.LAYER_TYPE_HARDWARE)
+            ViewCompat.setLayerType(background, ViewCompat.LAYER_TYPE_NONE, null);
+        mBackgroundPool.release(layoutId, background);
+    }
+
+    public void setBackgroundPool(SwipeBackgroundPool backgroundPool) {
+        this.mBackgroundPool = backgroundPool;
+    }
+
+    /**
+     * Share the measured heights of the backgrounds with other rows. A background is only
+     * measured if no row measured the same layout, at the same width and with the same content
+     * key, before.
+     *
+     * @param measureCache the cache of measured heights, or null to measure every time
+     */
+    public void setMeasureCache(SwipeMeasureCache measureCache) {
+        this.mMeasureCache = measureCache;
+    }
+
+    /**
+     * Report the cost of updateView(), of measures and of layout requests of this row
+     *
+     * @param metricsListener the listener, or null to report nothing
+     */
+    public void setMetricsListener(SwipeMetricsListener metricsListener) {
+        this.mMetricsListener = metricsListener;
+    }
+
+    /**
+     * Report an object created for this row while it is bound or slides
+     */
+    void countAllocation() {
+        if (mMetricsListener != null)
+            mMetricsListener.onPhase(SwipeMetrics.PHASE_ALLOCATION, 0);
+    }
+
+    @Override
+    public void requestLayout() {
+        // Only the first request of a layout pass costs anything, the next ones stop here
+        if (mMetricsListener != null && !isLayoutRequested())
+            mMetricsListener.onPhase(SwipeMetrics.PHASE_LAYOUT_REQUEST, 0);
+        super.requestLayout();
+    }
+
+    /**
+     * Set the key of the content shown by the background of the given direction. Backgrounds of
+     * the same layout and the same content key are expected to have the same height.
+     *
+     * @param direction the direction of the background
+     * @param contentKey the key of the content the background shows
+     */
+    public void setBackgroundContentKey(int direction, long contentKey) {
+        if (!SwipeDirections.isDirection(direction)) {
+            throw new IllegalArgumentException("Direction is not valid");
+        }
+        mBackgroundContentKeys[SwipeDirections.indexOf(direction)] = contentKey;
     }
 
 
 
 
     public void updateView() {
-        if(SwipeDirections.DIRECTION_NEUTRAL != visibleView && mBackgroundMap.get(visibleView) == null)
+        mUpdatePending = false;
+        if(SwipeDirections.DIRECTION_NEUTRAL != visibleView && !hasBackground(visibleView))
             return;
+        final boolean trace = SwipeTrace.sEnabled;
+        if (trace)
+            SwipeTrace.beginSection(SwipeTrace.UPDATE_VIEW);
+        final long start = mMetricsListener != null ? System.nanoTime() : 0;
         translateBackgrounds();
         //contentView.setLayoutParams(new LayoutParams(mLayoutParamWidth, mLayoutParamHeight));
         contentView.measure(mLayoutParamWidth, mLayoutParamHeight);
@@ -239,67 +573,111 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
             contentView.setAlpha(1.f);
         }
 
-        for (int i = 0; i < mBackgroundMap.size(); i++)
-            mBackgroundMap.valueAt(i).setVisibility(View.GONE);
+        // Only hide the backgrounds that are not shown: going through GONE requests a layout
+        final int index = visibleView == SwipeDirections.DIRECTION_NEUTRAL ? -1 : SwipeDirections.indexOf(visibleView);
+        for (int i = 0; i < SwipeDirections.DIRECTION_COUNT; i++) {
+            if (mBackgroundViews[i] != null && i != index)
+                mBackgroundViews[i].setVisibility(View.GONE);
+        }
 
-        if(visibleView != SwipeDirections.DIRECTION_NEUTRAL) {
-            View background = mBackgroundMap.get(visibleView);
+        // Drawn backgrounds follow the translation, which doesn't redraw the row by itself
+        if (mDrawnBackgrounds != 0)
+            invalidate();
+
+        if(visibleView != SwipeDirections.DIRECTION_NEUTRAL && mBackgroundViews[index] == null) {
+            // A drawn background, only the content and the height of the row are updated
+            if (fadeOnTranslation && isContentFading())
+                contentView.setAlpha(getSwipeRatioReversed());
+            if (mBackgroundType[index] == LAYOUT_DISMISS)
+                updateLayoutHeight(this, getCurrentValueFromRatio(mContentViewHeight, 0, getSwipeRatio(1)));
+        } else if(visibleView != SwipeDirections.DIRECTION_NEUTRAL) {
+            View background = mBackgroundViews[index];
             background.setVisibility(View.VISIBLE);
 
             // FADE IN / FADE OUT
             if(fadeOnTranslation) {
                 background.setAlpha(getSwipeRatio());
-                if (((visibleView == SwipeDirections.DIRECTION_NORMAL_LEFT || visibleView == SwipeDirections.DIRECTION_FAR_LEFT) && (fadeOnSlideLeft || slideInOffsetLeft == 0))
-                    ||
-                    ((visibleView == SwipeDirections.DIRECTION_NORMAL_RIGHT || visibleView == SwipeDirections.DIRECTION_FAR_RIGHT) && (fadeOnSlideRight || slideInOffsetRight == 0))) {
+                if (isContentFading()) {
                     contentView.setAlpha(getSwipeRatioReversed());
                 }
             }
 
-            if (mBackgroundMatchParent.contains(visibleView)) {
+            final int type = mBackgroundType[index];
+            if (type == LAYOUT_MATCH_PARENT) {
                 setLayoutHeight(background, heightContent);
-            } else if (mBackgroundAutoLayout.contains(visibleView)) {
+            } else if (type == LAYOUT_AUTOLAYOUT) {
                 setLayoutHeight(background, mLayoutParamHeight);
             } else {
-                //Integer temp = mBackgroundHeight.get(visibleView);
-                //int heightBackground = temp == null ? 0 : temp;
-                int heightBackground = mBackgroundHeight.get(visibleView);
+                int heightBackground = mBackgroundHeight[index];
                 if (heightBackground > heightContent) {
                     int tempHeight = getCurrentValueFromRatio(heightContent, heightBackground, getSwipeRatio(mExpandSwipeRatio));
                     setLayoutParams(contentView, mLayoutParamWidth, tempHeight);
-                    background.getLayoutParams().height = tempHeight;
-                    this.getLayoutParams().height = mLayoutParamHeight;
+                    updateLayoutHeight(background, tempHeight);
+                    updateLayoutHeight(this, mLayoutParamHeight);
                 } else {
                     int tempHeight = getCurrentValueFromRatio(mContentViewHeight, heightBackground, getSwipeRatio(heightBackground == 0 ? 1 : mExpandSwipeRatio));
-                    background.getLayoutParams().height = tempHeight;
-                    this.getLayoutParams().height = tempHeight;
+                    updateLayoutHeight(background, tempHeight);
+                    updateLayoutHeight(this, tempHeight);
                 }
             }
         }
+        if (mMetricsListener != null)
+            mMetricsListener.onPhase(SwipeMetrics.PHASE_FRAME, System.nanoTime() - start);
+        if (trace)
+            SwipeTrace.endSection();
     }
 
 
 
 
+    private boolean isContentFading() {
+        return ((visibleView == SwipeDirections.DIRECTION_NORMAL_LEFT || visibleView == SwipeDirections.DIRECTION_FAR_LEFT) && (fadeOnSlideLeft || slideInOffsetLeft == 0))
+                ||
+                ((visibleView == SwipeDirections.DIRECTION_NORMAL_RIGHT || visibleView == SwipeDirections.DIRECTION_FAR_RIGHT) && (fadeOnSlideRight || slideInOffsetRight == 0));
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mDrawnBackgrounds != 0 && visibleView != SwipeDirections.DIRECTION_NEUTRAL)
+            drawBackground(canvas);
+        super.dispatchDraw(canvas);
+    }
+
+    // Draw the background of the visible direction, if it is a drawn one, behind the children
+    private void drawBackground(Canvas canvas) {
+        SwipeBackgroundDrawer drawer = mBackgroundDrawers[SwipeDirections.indexOf(visibleView)];
+        int translation = (int) getTranslationX();
+        if (drawer == null || translation == 0)
+            return;
+        int width = getWidth();
+        int revealed = Math.min(Math.abs(translation), width);
+        // With fixed backgrounds the content slides over the row, otherwise the row itself slides
+        // and the background shows next to it
+        int left;
+        if (fixedBackground)
+            left = translation > 0 ? 0 : width - revealed;
+        else
+            left = translation > 0 ? -revealed : width;
+        drawer.draw(canvas, visibleView, left, 0, left + revealed, getHeight(), getSwipeRatio());
+    }
+
     public int getCurrentValueFromRatio(int start, int end, float ratio) {
-        return (int) (start + (end - start) * ratio);
+        return SwipeMath.getCurrentValueFromRatio(start, end, ratio);
     }
 
 
     public float getSwipeRatio(float expandSwipeRatio) {
-        float ratio = Math.abs(this.getTranslationX()) / (this.getWidth() * expandSwipeRatio);
-        if(ratio > 1.f)
-            ratio = 1.f;
-        return ratio;
+        return SwipeMath.getSwipeRatio(this.getTranslationX(), this.getWidth() * expandSwipeRatio);
     }
 
     private void resetBackgrounds(int height) {
-        for (int i = 0; i < mBackgroundMap.size(); i++) {
-            int key = mBackgroundMap.keyAt(i);
-            View background = mBackgroundMap.get(key);
+        for (int i = 0; i < SwipeDirections.DIRECTION_COUNT; i++) {
+            View background = mBackgroundViews[i];
+            if (background == null)
+                continue;
             background.setAlpha(1.f);
             setLayoutParams(background, MATCH, height);
-            background.setVisibility(key == visibleView ? VISIBLE : INVISIBLE);
+            background.setVisibility(SwipeDirections.directionAt(i) == visibleView ? VISIBLE : INVISIBLE);
         }
         translateBackgrounds();
     }
@@ -320,8 +698,15 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
         }
     }
 
+    // Same as setLayoutHeight, without a layout request when the height doesn't change
+    private static void updateLayoutHeight(View view, int height) {
+        if (view.getLayoutParams() != null && view.getLayoutParams().height != height)
+            setLayoutHeight(view, height);
+    }
+
 
     public void measureBackgroundsOnNextLayoutChange() {
+        countAllocation();
         getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
             @SuppressWarnings("deprecation")
             @Override
@@ -333,36 +718,56 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
     }
 
     public void measureBackground(int direction) {
-        boolean isDismiss = mBackgroundType.get(direction) == LAYOUT_DISMISS;
+        final boolean trace = SwipeTrace.sEnabled;
+        if (trace)
+            SwipeTrace.beginSection(SwipeTrace.MEASURE_BACKGROUND);
+        final int index = SwipeDirections.indexOf(direction);
+        boolean isDismiss = mBackgroundType[index] == LAYOUT_DISMISS;
         if(isDismiss) {
-            mBackgroundHeight.put(direction, 0);
+            mBackgroundHeight[index] = 0;
         } else {
-            View background = mBackgroundMap.get(direction);
-            background.measure(mWidthMeasureSpec, HEIGHT_MEASURE_SPEC);
-            int height = background.getMeasuredHeight();
-            mBackgroundHeight.put(direction, height);
+            final long start = mMetricsListener != null ? System.nanoTime() : 0;
+            View background = mBackgroundViews[index];
+            int layoutId = mBackgroundLayoutIds[index];
+            // Rows measured before their first layout had no width yet
+            if (getWidth() > 0)
+                mWidthMeasureSpec = MeasureSpec.makeMeasureSpec(getWidth(), MeasureSpec.EXACTLY);
+            // Without a layout id or a width, there is nothing to share the height with
+            boolean useCache = mMeasureCache != null && layoutId != 0 && MeasureSpec.getSize(mWidthMeasureSpec) > 0;
+            int height = useCache ? mMeasureCache.get(layoutId, mWidthMeasureSpec, mBackgroundContentKeys[index]) : -1;
+            if (height < 0) {
+                background.measure(mWidthMeasureSpec, HEIGHT_MEASURE_SPEC);
+                height = background.getMeasuredHeight();
+                if (useCache)
+                    mMeasureCache.put(layoutId, mWidthMeasureSpec, mBackgroundContentKeys[index], height);
+            }
+            mBackgroundHeight[index] = height;
+            if (mMetricsListener != null)
+                mMetricsListener.onPhase(SwipeMetrics.PHASE_MEASURE, System.nanoTime() - start);
         }
+        if (trace)
+            SwipeTrace.endSection();
     }
 
     public void measureBackgrounds() {
-        for (int i = 0; i < mBackgroundMap.size(); i++) {
-            int direction = mBackgroundMap.keyAt(i);
-            measureBackground(direction);
+        for (int i = 0; i < SwipeDirections.DIRECTION_COUNT; i++) {
+            if (mBackgroundViews[i] != null)
+                measureBackground(SwipeDirections.directionAt(i));
         }
     }
 
     public float getSwipeRatio() {
-        boolean right = visibleView == SwipeDirections.DIRECTION_NORMAL_RIGHT || visibleView == SwipeDirections.DIRECTION_FAR_RIGHT;
-        float ratio = 1.66f*Math.abs(getTranslationX()) / (getWidth() - (right ? slideInOffsetRight : slideInOffsetLeft));
-        ratio = ratio > 1.f ? 1.f : ratio;
-        return ratio;
+        return SwipeMath.getSwipeRatio(1.66f * getTranslationX(), getSwipeDistance());
     }
 
     public float getRealSwipeRatio() {
+        return SwipeMath.getSwipeRatio(getTranslationX(), getSwipeDistance());
+    }
+
+    // Distance from a closed row to a row slid in on the side of the visible background
+    private int getSwipeDistance() {
         boolean right = visibleView == SwipeDirections.DIRECTION_NORMAL_RIGHT || visibleView == SwipeDirections.DIRECTION_FAR_RIGHT;
-        float ratio = Math.abs(getTranslationX()) / (getWidth() - (right ? slideInOffsetRight : slideInOffsetLeft));
-        ratio = ratio > 1.f ? 1.f : ratio;
-        return ratio;
+        return getWidth() - (right ? slideInOffsetRight : slideInOffsetLeft);
     }
 
     public float getSwipeRatioReversed() {
@@ -382,14 +787,12 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
      * Move all backgrounds to the edge of the Layout so they can be swiped in
      */
     public void translateBackgrounds() {
-        if (mBackgroundMap == null)
-            return;
         //float ratio = fixedBackground ? getRealSwipeRatio() : 1.f;
         float ratio = 0.f;
-        for (int i=0;i<mBackgroundMap.size();i++) {
-            int key = mBackgroundMap.keyAt(i);
-            View background = mBackgroundMap.valueAt(i);
-            background.setTranslationX(-Integer.signum(key)*background.getWidth()*ratio);
+        for (int i = 0; i < SwipeDirections.DIRECTION_COUNT; i++) {
+            View background = mBackgroundViews[i];
+            if (background != null)
+                background.setTranslationX(-Integer.signum(SwipeDirections.directionAt(i))*background.getWidth()*ratio);
         }
     }
 
@@ -398,28 +801,58 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
     }
 
     public void resetViewPos() {
+        // The row is brought to rest, without the end action of a running slide
+        cancelTranslationAnimation();
+        mDismissed = false;
         setTranslationX(0);
         slideInView = SwipeDirections.DIRECTION_NEUTRAL;
         refreshVisibleView();
     }
 
+    /**
+     * Keep the row swiped out of the screen in the given direction, showing its background, while
+     * its dismiss is pending. {@link #resetViewPos()} or {@link #slideBack()} bring it back.
+     *
+     * @param direction the direction the row was dismissed in
+     * @param translation the distance the row is moved by, usually its width
+     */
+    public void setDismissed(int direction, int translation) {
+        mDismissed = true;
+        slideInView = SwipeDirections.DIRECTION_NEUTRAL;
+        setVisibleView(direction);
+        setTranslationX(direction > 0 ? translation : -translation);
+        // The row doesn't move until it is brought back
+        stopSlideLayers();
+    }
+
+    public boolean isDismissed() {
+        return mDismissed;
+    }
+
     public void slideBack() {
         slideBack(null);
     }
 
     public void slideBack(final OnSlideBack listener) {
-        AnimatorListenerAdapter animatorListenerAdapter = listener == null ? null : new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                resetOnEndAnim(listener, animation);
-            }
+        slideBack(0.f, false, listener);
+    }
 
-            @Override
-            public void onAnimationCancel(Animator animation) {
-                resetOnEndAnim(listener, animation);
-            }
-        };
-        animateTranslationX(0, animatorListenerAdapter);
+    /**
+     * Slide the row back, starting at the given velocity
+     *
+     * @param velocity the release velocity of the finger, in pixels per second
+     * @param listener called when the row is back, can be null
+     */
+    public void slideBack(float velocity, OnSlideBack listener) {
+        slideBack(velocity, true, listener);
+    }
+
+    private void slideBack(float velocity, boolean useVelocity, OnSlideBack listener) {
+        // The listener of a cancelled slide back is not called
+        cancelTranslationAnimation();
+        mOnSlideBack = listener;
+        animateTranslationX(0, velocity, useVelocity, listener == null ? null : mSlideBackListener);
+        mDismissed = false;
         slideInView = SwipeDirections.DIRECTION_NEUTRAL;
     }
 
@@ -449,6 +882,22 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
         slideIn(direction, velocity, true, translation, animatorListenerAdapter);
     }
 
+    /**
+     * Show the background of the given direction, without animation. Used to restore the state
+     * of a row after the data set changed.
+     *
+     * @param direction the direction of the background to show
+     * @param translation the distance the row is moved by
+     */
+    public void setSlideIn(int direction, int translation) {
+        if (onSlideInListener != null)
+            onSlideInListener.onSlideIn(this);
+        boolean right = direction == SwipeDirections.DIRECTION_NORMAL_RIGHT || direction == SwipeDirections.DIRECTION_FAR_RIGHT;
+        slideInView = direction;
+        refreshVisibleView();
+        setTranslationX(right ? (translation-slideInOffsetRight) : -(translation-slideInOffsetLeft));
+    }
+
     public boolean isSlideIn() {
         return slideInView != SwipeDirections.DIRECTION_NEUTRAL;
     }
@@ -463,24 +912,102 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
     }
 
     private void animateTranslationX(int translationX, float velocity, boolean useVelocity, final AnimatorListenerAdapter animatorListenerAdapter) {
-        int dur = mMinAnimDuration;
-        if(useVelocity) {
-            float distance = translationX - getTranslationX();
-            int duration = (int) (distance * 1000 / velocity);
-            if(duration > mMinAnimDuration) {
-                dur = duration > mMaxAnimDuration ? mMaxAnimDuration : duration;
-            }
+        // A settle is never slower than a plain slide, a fast release makes it shorter
+        int dur = useVelocity
+                ? SwipeMath.getSettleDuration(translationX - getTranslationX(), velocity, mMinAnimDuration)
+                : mMinAnimDuration;
+        TimeInterpolator interpolator = useVelocity ? SETTLE_INTERPOLATOR : SLIDE_INTERPOLATOR;
+        // Cancels the running animation, if any, without its end action
+        cancelTranslationAnimation();
+        mAnimatorListener = animatorListenerAdapter;
+        if (canAnimateOnRenderThread()) {
+            // Nothing has to run per frame: one update for the state the row slides to, then
+            // the translation is left to the ViewPropertyAnimator
+            View target = fixedBackground ? contentView : this;
+            updateView();
+            mIsAnimatingOnRenderThread = true;
+            target.animate().translationX(translationX).setDuration(dur).setInterpolator(interpolator)
+                    .setListener(mTranslationListener).start();
+            return;
         }
-        ValueAnimator animator = ValueAnimator.ofFloat(getTranslationX(), translationX).setDuration(dur);
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                setTranslationX((Float) animation.getAnimatedValue());
+        if (mTranslationAnimator == null) {
+            mTranslationAnimator = ValueAnimator.ofFloat(0.f, 1.f);
+            countAllocation();
+            mTranslationAnimator.addUpdateListener(mTranslationUpdateListener);
+            mTranslationAnimator.addListener(mTranslationListener);
+        }
+        mAnimateFromX = getTranslationX();
+        mAnimateToX = translationX;
+        mTranslationAnimator.setDuration(dur);
+        mTranslationAnimator.setInterpolator(interpolator);
+        mTranslationAnimator.start();
+    }
+
+    private void cancelTranslationAnimation() {
+        if (mIsAnimatingOnRenderThread) {
+            (fixedBackground ? contentView : this).animate().cancel();
+            // A ViewPropertyAnimator cancelled before its first frame doesn't call its listener
+            if (mIsAnimatingOnRenderThread) {
+                if (mRunningAnimation != null)
+                    mTranslationListener.onAnimationCancel(mRunningAnimation);
+                mAnimatorListener = null;
+                mOnSlideBack = null;
+                finishTranslationAnimation();
             }
-        });
-        if(animatorListenerAdapter != null)
-            animator.addListener(animatorListenerAdapter);
-        animator.start();
+        } else if (mTranslationAnimator != null) {
+            mTranslationAnimator.cancel();
+        }
+    }
+
+    /**
+     * Leave the row at rest where the animation stopped, whether it ended or was cancelled
+     */
+    private void finishTranslationAnimation() {
+        mRunningAnimation = null;
+        if (mIsAnimatingOnRenderThread) {
+            mIsAnimatingOnRenderThread = false;
+            (fixedBackground ? contentView : this).animate().setListener(null);
+            // Let the row catch up with the translation the ViewPropertyAnimator left it at
+            setTranslationX(getTranslationX(), true);
+        }
+        // The row is at rest, open or closed: it doesn't need its layers anymore
+        stopSlideLayers();
+    }
+
+    /**
+     * The ViewPropertyAnimator runs on the RenderThread when possible, but it doesn't go through
+     * setTranslationX(), so it is only used when the row looks the same all along the animation
+     * apart from its translation.
+     */
+    private boolean canAnimateOnRenderThread() {
+        if (!mAnimateOnRenderThread || fadeOnTranslation || contentView == null)
+            return false;
+        for (int i = 0; i < onSlidingListeners.size(); i++) {
+            if (onSlidingListeners.get(i) != null)
+                return false;
+        }
+        if (visibleView == SwipeDirections.DIRECTION_NEUTRAL)
+            return true;
+        final int index = SwipeDirections.indexOf(visibleView);
+        // A drawn background is recorded in dispatchDraw(), it must be redrawn on every frame
+        if (mBackgroundDrawers[index] != null)
+            return false;
+        // The height of other backgrounds follows the swipe ratio
+        int type = mBackgroundType[index];
+        return type == LAYOUT_MATCH_PARENT || type == LAYOUT_AUTOLAYOUT;
+    }
+
+    /**
+     * When enabled, slide animations that don't change the height of the row, with
+     * LAYOUT_MATCH_PARENT or LAYOUT_AUTOLAYOUT backgrounds, are run with a ViewPropertyAnimator
+     * on the content view in fixed background mode, on the row otherwise. On Lollipop and later, that animation runs on the RenderThread
+     * and stays smooth while the UI thread is busy. Rows that fade or have sliding listeners
+     * always animate on the UI thread, as do rows showing a drawn background.
+     *
+     * @param animateOnRenderThread true to use the ViewPropertyAnimator when possible
+     */
+    public void setAnimateOnRenderThread(boolean animateOnRenderThread) {
+        this.mAnimateOnRenderThread = animateOnRenderThread;
     }
 
     public void animateTranslationX(int translationX, AnimatorListenerAdapter animatorListenerAdapter) {
@@ -504,9 +1031,9 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
     }
 
     public int getBackgroundType(int direction) {
-        if(mBackgroundType != null) {
-            Integer type = mBackgroundType.get(direction);
-            return type == null ? -1 : type;
+        if(SwipeDirections.isDirection(direction)) {
+            int type = mBackgroundType[SwipeDirections.indexOf(direction)];
+            return type == 0 ? -1 : type;
         }
         return -1;
     }
@@ -575,6 +1102,65 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
         this.fadeOnTranslation = fadeOnTranslation;
     }
 
+    /**
+     * When enabled, the content view and the visible background are rendered into hardware layers
+     * while the row slides, and go back to their own layer type once it settles. Moving or fading
+     * a row then only costs a composite per frame instead of redrawing its whole hierarchy.
+     * Backgrounds whose height changes with the swipe (LAYOUT_WRAP_CONTENT) still redraw their
+     * layer on every frame, so this mostly helps rows with LAYOUT_MATCH_PARENT backgrounds.
+     *
+     * @param useHardwareLayers true to use hardware layers while sliding
+     */
+    public void setUseHardwareLayersWhileSliding(boolean useHardwareLayers) {
+        this.mUseHardwareLayers = useHardwareLayers;
+        if (!useHardwareLayers)
+            stopSlideLayers();
+    }
+
+    private void startSlideLayers() {
+        if (!mUseHardwareLayers || contentView == null)
+            return;
+        if (mLayeredContentView != contentView) {
+            stopSlideLayers();
+            mLayeredContentView = contentView;
+            mContentLayerType = contentView.getLayerType();
+            ViewCompat.setLayerType(contentView, ViewCompat.LAYER_TYPE_HARDWARE, null);
+        }
+        View background = getBackground(visibleView);
+        if (mLayeredBackground != background) {
+            if (mLayeredBackground != null)
+                ViewCompat.setLayerType(mLayeredBackground, mBackgroundLayerType, null);
+            mLayeredBackground = background;
+            if (background != null) {
+                mBackgroundLayerType = background.getLayerType();
+                ViewCompat.setLayerType(background, ViewCompat.LAYER_TYPE_HARDWARE, null);
+            }
+        }
+    }
+
+    private void stopSlideLayers() {
+        if (mLayeredContentView != null) {
+            ViewCompat.setLayerType(mLayeredContentView, mContentLayerType, null);
+            mLayeredContentView = null;
+        }
+        if (mLayeredBackground != null) {
+            ViewCompat.setLayerType(mLayeredBackground, mBackgroundLayerType, null);
+            mLayeredBackground = null;
+        }
+    }
+
+    /**
+     * When enabled, a translation change from a touch event only marks the row as dirty:
+     * measuring, layout params and background visibility are updated at most once per frame,
+     * right before it is drawn, however many touch events arrive in between. Animation ticks
+     * already come once per frame, before the layout, so they update the row right away.
+     *
+     * @param coalesceLayoutUpdates true to update the layout once per frame
+     */
+    public void setCoalesceLayoutUpdates(boolean coalesceLayoutUpdates) {
+        this.mCoalesceLayoutUpdates = coalesceLayoutUpdates;
+    }
+
     public boolean isSliding() {
         return getTranslationX() != 0.f;
     }
@@ -625,12 +1211,33 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
 
     @Override
     public void setTranslationX(float translationX) {
+        setTranslationX(translationX, false);
+    }
+
+    /**
+     * @param fromAnimation true when called from an animation tick. Posting the update from
+     *                      there would run it in the next frame, a frame behind the translation.
+     */
+    private void setTranslationX(float translationX, boolean fromAnimation) {
         if (fixedBackground)
             contentView.setTranslationX(translationX);
         else
             super.setTranslationX(translationX);
-        updateView();
-        for (OnSlidingListener listener : onSlidingListeners) {
+        if (translationX != 0)
+            startSlideLayers();
+        else
+            stopSlideLayers();
+        if (mCoalesceLayoutUpdates && !fromAnimation) {
+            if (!mUpdatePending) {
+                mUpdatePending = true;
+                ViewCompat.postOnAnimation(this, mUpdateViewRunnable);
+            }
+        } else {
+            updateView();
+        }
+        // Indexed loop: no Iterator allocation on every frame of a swipe
+        for (int i = 0; i < onSlidingListeners.size(); i++) {
+            OnSlidingListener listener = onSlidingListeners.get(i);
             if(listener != null)
                 listener.onSliding(translationX);
         }
@@ -665,6 +1272,7 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
 
     public void measureContentViewHeight() {
         resetBackgrounds(0);
+        countAllocation();
         getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
             @Override
             public boolean onPreDraw() {
@@ -674,8 +1282,11 @@ public class SwipeViewGroup extends FrameLayout implements Checkable {
                 if (parent != null)
                     width = parent.getWidth();
 
-                contentView.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY), HEIGHT_MEASURE_SPEC);
+                long start = mMetricsListener != null ? System.nanoTime() : 0;
+                contentView.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY), CONTENT_HEIGHT_MEASURE_SPEC);
                 mContentViewHeight = contentView.getMeasuredHeight();
+                if (mMetricsListener != null)
+                    mMetricsListener.onPhase(SwipeMetrics.PHASE_MEASURE, System.nanoTime() - start);
                 return mViewIsInitialized;
             }
         });
@@ -19,13 +19,16 @@ package ee.graph.swipeviewadapter;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
 import android.graphics.Rect;
+import android.support.v4.view.ViewCompat;
 import android.util.Log;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewPropertyAnimator;
+import android.view.ViewTreeObserver;
 import android.widget.AbsListView;
 import android.widget.ListView;
 
@@ -61,40 +64,96 @@ import java.util.List;
 public class SwipeViewTouchListener implements View.OnTouchListener {
     private static final String TAG = SwipeViewTouchListener.class.getName();
 
-    private float
-            mFarSwipeFraction = 0.5f,
-            mNormalSwipeFraction = 0.25f,
-            mDownX,
-            mDownY,
-            mLatestDeltaX = 0;
+    private float mReleaseVelocity = 0; // velocity the row settles with after ACTION_UP, 0 for none
 
     private boolean
             canSlideIn = true,
-            mIsDown,
-            mIsMoving = false,
             mIsEnabled = true,
-            mIsFar,
-            mIsPerformingDismiss = false;
+            mIsPerformingDismiss = false,
+            mVelocitySettle = false;
 
     private int
-            mViewWidth = 1, // 1 and not 0 to prevent dividing by zero
-            mSlop,
-            mMinFlingVelocity,
-            mMaxFlingVelocity,
-            mSwipingSlop,
             mDownPosition,
-            mDirection,
-            mDirectionTemporary,
             mSlideInView = -1,
-            mSlideInOffset = 0;
+            mSlideInOffset = 0,
+            mDismissPosition,
+            mDismissDirection;
+
+    // Item id of the slid in row, when the adapter has stable ids
+    private long mSlideInId = ListView.INVALID_ROW_ID;
+    private int mSlideInDirection = SwipeDirections.DIRECTION_NEUTRAL;
 
     private ListView mListView;
     private ActionCallbacks mCallbacks;
+    // Slop, thresholds, direction and release decision of the gesture
+    private final SwipeGestureEngine mEngine;
     private VelocityTracker mVelocityTracker;
-    private View mDownView;
+    private View
+            mDownView,
+            mDismissView;
     private SwipeViewGroup mDownViewGroup;
-    private List<Integer> mEnabledDirections = new ArrayList<>();
     private OnSwipeActionTouchListener onSwipeActionTouchListener;
+    private SwipeMotionTrace mMotionTrace;
+
+    // Reused across gestures so the touch path doesn't allocate
+    private final Rect mHitRect = new Rect();
+    private final int[] mListViewCoordinates = new int[2];
+    private boolean mListViewCoordinatesValid = false;
+    private final SwipeMath.RowBounds mChildBounds = new SwipeMath.RowBounds() {
+        @Override
+        public int getRowTop(int index) {
+            View child = mListView.getChildAt(index);
+            return child.getTop() + (int) child.getTranslationY();
+        }
+
+        @Override
+        public int getRowBottom(int index) {
+            View child = mListView.getChildAt(index);
+            return child.getBottom() + (int) child.getTranslationY();
+        }
+    };
+    // The screen position of the list only changes with a layout or a scroll of its parents
+    private final ViewTreeObserver.OnGlobalLayoutListener mInvalidateCoordinatesOnLayout = new ViewTreeObserver.OnGlobalLayoutListener() {
+        @Override
+        public void onGlobalLayout() {
+            mListViewCoordinatesValid = false;
+        }
+    };
+    private final ViewTreeObserver.OnScrollChangedListener mInvalidateCoordinatesOnScroll = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            mListViewCoordinatesValid = false;
+        }
+    };
+    private final AnimatorListenerAdapter mDismissListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationCancel(Animator animation) {
+            // The row was animated elsewhere, the item is not dismissed
+            mDismissView = null;
+            mIsPerformingDismiss = false;
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            if (mCollapseOnDismiss && mDismissView.getHeight() > 0) {
+                collapse();
+                return;
+            }
+            View dismissView = mDismissView;
+            mDismissView = null;
+            performDismiss(dismissView, mDismissPosition, mDismissDirection);
+            mIsPerformingDismiss = false;
+        }
+    };
+
+    // Collapse of a dismissed row, created on the first dismiss and reused
+    private boolean mCollapseOnDismiss = false;
+    private long mCollapseDuration;
+    private int mCollapseHeight;
+    private final Rect mCollapseClipBounds = new Rect();
+    private ValueAnimator mCollapseAnimator;
+    // Every row moved by the collapse, including the ones that left the list meanwhile
+    private final List<View> mCollapseOffsetViews = new ArrayList<>();
 
     /**
      * The callback interface used by {@link SwipeViewTouchListener} to inform its client
@@ -130,11 +189,103 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
      */
     public SwipeViewTouchListener(ListView listView, ActionCallbacks callbacks) {
         ViewConfiguration vc = ViewConfiguration.get(listView.getContext());
-        mSlop = vc.getScaledTouchSlop();
-        mMinFlingVelocity = vc.getScaledMinimumFlingVelocity() * 16;
-        mMaxFlingVelocity = vc.getScaledMaximumFlingVelocity();
+        mEngine = new SwipeGestureEngine(vc.getScaledTouchSlop(),
+                vc.getScaledMinimumFlingVelocity() * 16, vc.getScaledMaximumFlingVelocity());
         mListView = listView;
         mCallbacks = callbacks;
+        mCollapseDuration = listView.getResources().getInteger(android.R.integer.config_shortAnimTime);
+        ViewTreeObserver observer = listView.getViewTreeObserver();
+        observer.addOnGlobalLayoutListener(mInvalidateCoordinatesOnLayout);
+        observer.addOnScrollChangedListener(mInvalidateCoordinatesOnScroll);
+    }
+
+    /**
+     * Remove the listeners added to the ListView, when the adapter moves to another ListView
+     */
+    void detach() {
+        ViewTreeObserver observer = mListView.getViewTreeObserver();
+        observer.removeGlobalOnLayoutListener(mInvalidateCoordinatesOnLayout);
+        observer.removeOnScrollChangedListener(mInvalidateCoordinatesOnScroll);
+    }
+
+    /**
+     * Set whether a dismissed row collapses before onSwipeToDismiss() is called. The row is
+     * clipped and the rows below it move up with translationY, so the collapse doesn't run a
+     * layout pass per frame. The only layout happens when the item is removed at the end.
+     *
+     * @param collapseOnDismiss true to collapse dismissed rows
+     */
+    public void setCollapseOnDismiss(boolean collapseOnDismiss) {
+        this.mCollapseOnDismiss = collapseOnDismiss;
+    }
+
+    private void collapse() {
+        mCollapseHeight = mDismissView.getHeight();
+        if (mCollapseAnimator == null) {
+            mCollapseAnimator = ValueAnimator.ofFloat(0.f, 1.f);
+            mCollapseAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    setCollapseOffset((int) (mCollapseHeight * animation.getAnimatedFraction()));
+                }
+            });
+            mCollapseAnimator.addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    View dismissView = mDismissView;
+                    mDismissView = null;
+                    ViewCompat.setClipBounds(dismissView, null);
+                    resetCollapseOffsets();
+                    performDismiss(dismissView, mDismissPosition, mDismissDirection);
+                    mIsPerformingDismiss = false;
+                }
+            });
+        }
+        mCollapseAnimator.setDuration(mCollapseDuration);
+        mCollapseAnimator.start();
+    }
+
+    private void setCollapseOffset(int offset) {
+        mCollapseClipBounds.set(0, 0, mDismissView.getWidth(), mCollapseHeight - offset);
+        ViewCompat.setClipBounds(mDismissView, mCollapseClipBounds);
+        setCollapseOffset(mDismissView, offset);
+    }
+
+    /**
+     * Move the rows below the collapsing row up by the given offset
+     */
+    private void setCollapseOffset(View collapsingView, int offset) {
+        boolean isBelow = false;
+        for (int i = 0; i < mListView.getChildCount(); i++) {
+            View child = mListView.getChildAt(i);
+            if (isBelow) {
+                child.setTranslationY(-offset);
+                if (!mCollapseOffsetViews.contains(child))
+                    mCollapseOffsetViews.add(child);
+            } else if (child == collapsingView) {
+                isBelow = true;
+            }
+        }
+    }
+
+    private void resetCollapseOffsets() {
+        for (int i = 0; i < mCollapseOffsetViews.size(); i++)
+            mCollapseOffsetViews.get(i).setTranslationY(0);
+        mCollapseOffsetViews.clear();
+    }
+
+    /**
+     * Called when a row is bound. A row recycled while a dismissed row collapses is bound to
+     * another position, it must not keep the offset or the clip of the collapse. The next frame
+     * of the collapse moves it again if it is still below the collapsing row.
+     *
+     * @param view the row being bound
+     */
+    void resetCollapseState(View view) {
+        if (mCollapseOffsetViews.remove(view))
+            view.setTranslationY(0);
+        if (view == mDismissView && mCollapseAnimator != null && mCollapseAnimator.isRunning())
+            ViewCompat.setClipBounds(view, null);
     }
 
     public void setSlideInOffset(int mSlideInOffset) {
@@ -154,6 +305,15 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
         this.onSwipeActionTouchListener = onSwipeActionTouchListener;
     }
 
+    /**
+     * Record the touch events that reach the list, see {@link SwipeMotionTrace}
+     *
+     * @param motionTrace the trace to record to, or null to stop recording
+     */
+    public void setMotionTrace(SwipeMotionTrace motionTrace) {
+        this.mMotionTrace = motionTrace;
+    }
+
     /**
      * Returns an {@link AbsListView.OnScrollListener} to be added to the {@link
      * ListView} using {@link ListView#setOnScrollListener(AbsListView.OnScrollListener)}.
@@ -173,13 +333,24 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
         this.canSlideIn = canSlideIn;
     }
 
+    /**
+     * Set whether the row settles from the velocity of the finger when it is released, instead
+     * of with a fixed duration. A fast release then finishes the slide in, slide back or dismiss
+     * in as little time as its velocity allows.
+     *
+     * @param velocitySettle true to settle rows from the release velocity
+     */
+    public void setVelocitySettle(boolean velocitySettle) {
+        this.mVelocitySettle = velocitySettle;
+    }
+
     /**
      * Set the fraction of the View Width that needs to be swiped before it is counted as a far swipe
      *
      * @param farSwipeFraction float between 0 and 1, should be equal to or greater than normalSwipeFraction
      */
     protected void setFarSwipeFraction(float farSwipeFraction) {
-        mFarSwipeFraction = farSwipeFraction;
+        mEngine.setFarSwipeFraction(farSwipeFraction);
     }
 
     /**
@@ -188,7 +359,7 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
      * @param normalSwipeFraction float between 0 and 1, should be equal to or less than farSwipeFraction
      */
     protected void setNormalSwipeFraction(float normalSwipeFraction) {
-        mNormalSwipeFraction = normalSwipeFraction;
+        mEngine.setNormalSwipeFraction(normalSwipeFraction);
     }
 
     /**
@@ -197,28 +368,29 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
      *
      * @param direction Integer const from SwipeDirections
      */
-    protected void addEnabledDirection(Integer direction) {
-        if(!mEnabledDirections.contains(direction))
-            mEnabledDirections.add(direction);
+    protected void addEnabledDirection(int direction) {
+        mEngine.addEnabledDirection(direction);
     }
 
     @Override
     public boolean onTouch(View view, MotionEvent event) {
-        if(mIsPerformingDismiss)
-            return false;
-        if (mViewWidth < 2)
-            mViewWidth = mListView.getWidth();
-
         //int index = event.getActionIndex();
         //int pointerId = event.getPointerId(index);
         int action = event.getActionMasked();
+        if (mMotionTrace != null)
+            record(event, action);
+
+        if(mIsPerformingDismiss)
+            return false;
+        if (mEngine.getViewWidth() < 2)
+            mEngine.setViewWidth(mListView.getWidth());
 
         switch (action) {
 
             case MotionEvent.ACTION_DOWN: {
 
                 // TODO: ensure this is a finger, and set a flag
-                if (!mIsEnabled || mIsDown)
+                if (!mIsEnabled || mEngine.isDown())
                     return false;
 
                 cancel();
@@ -227,9 +399,7 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
                 if (mDownView != null) {
                     mDownPosition = mListView.getPositionForView(mDownView);
                     if (mCallbacks.hasActions(mDownPosition)) {
-                        mIsDown = true;
-                        mDownX = event.getRawX();
-                        mDownY = event.getRawY();
+                        mEngine.onDown(event.getRawX(), event.getRawY());
                         initVelocityTracker();
                         addMovement(event);
                     } else {
@@ -246,7 +416,7 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
             }
 
             case MotionEvent.ACTION_UP: {
-                if (mVelocityTracker == null || !mEnabledDirections.contains(mDirection) || mDownPosition == ListView.INVALID_POSITION || mDownViewGroup.isSlideIn()) {
+                if (!mEngine.isDown() || mDownPosition == ListView.INVALID_POSITION || mDownViewGroup.isSlideIn()) {
                     //cancel();
                     //if (hasSlideInView() && mVelocityTracker == null || mDownPosition == ListView.INVALID_POSITION)
                     //    slideBack();
@@ -255,15 +425,16 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
                 }
 
                 addMovementAndCompute(event);
-                float deltaX = event.getRawX() - mDownX;
-                boolean isSwipe = Math.abs(deltaX) > (mViewWidth * mNormalSwipeFraction);
-                boolean validate = mDirection == mDirectionTemporary && mIsMoving && (isSwipe || isFling());
-                if (validate && canDismiss()) {
-                    dismiss(isSwipe ? deltaX > 0 : mVelocityTracker.getXVelocity() > 0);
-                } else if (validate && canSlideIn()) {
-                    mCallbacks.onSwipeNormal(mDownPosition, mDirection);
+                if (mVelocitySettle)
+                    mReleaseVelocity = mVelocityTracker.getXVelocity();
+                int release = mEngine.onUp(event.getRawX(), mVelocityTracker.getXVelocity(),
+                        mVelocityTracker.getYVelocity(), canDismiss(), canSlideIn());
+                if (release == SwipeGestureEngine.UP_DISMISS_RIGHT || release == SwipeGestureEngine.UP_DISMISS_LEFT) {
+                    dismiss(release == SwipeGestureEngine.UP_DISMISS_RIGHT);
+                } else if (release == SwipeGestureEngine.UP_SLIDE_IN) {
+                    mCallbacks.onSwipeNormal(mDownPosition, mEngine.getDirection());
                     slideInView(mDownPosition);
-                } else {
+                } else if (release == SwipeGestureEngine.UP_CANCEL) {
                     cancel();
                 }
                 reset();
@@ -271,30 +442,21 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
             }
 
             case MotionEvent.ACTION_MOVE: {
-                if (mVelocityTracker == null || !mIsEnabled || mDownViewGroup.isSlideIn()) {
+                if (!mEngine.isDown() || !mIsEnabled || mDownViewGroup.isSlideIn()) {
                     cancel();
                     reset();
                     break;
                 }
 
                 addMovement(event);
-                float deltaX = event.getRawX() - mDownX;
-                float deltaY = event.getRawY() - mDownY;
-                if (mIsMoving) {
-                    mIsFar = mDirection*deltaX >= 0 && Math.abs(deltaX) > mViewWidth*mFarSwipeFraction;
-                    mDirection = getDirection(mIsFar, deltaX > 0);
-                    mDirectionTemporary = getDirection(mIsFar, deltaX - mLatestDeltaX > 0);
-                    mLatestDeltaX = deltaX;
-                    if(mEnabledDirections.contains(mDirection)) {
-                        mDownViewGroup.setVisibleView(mDirection);
-                        mDownView.setTranslationX(deltaX - mSwipingSlop);
-                        if(onSwipeActionTouchListener != null)
-                            onSwipeActionTouchListener.onSliding(mDownViewGroup, mDownPosition);
-                        return true;
-                    }
-                } else if (Math.abs(deltaX) > mSlop && Math.abs(deltaY) < Math.abs(deltaX)) {
-                    mIsMoving = true;
-                    mSwipingSlop = (deltaX > 0 ? mSlop : -mSlop);
+                int move = mEngine.onMove(event.getRawX(), event.getRawY());
+                if (move == SwipeGestureEngine.MOVE_SLIDE) {
+                    mDownViewGroup.setVisibleView(mEngine.getDirection());
+                    mDownView.setTranslationX(mEngine.getTranslationX());
+                    if(onSwipeActionTouchListener != null)
+                        onSwipeActionTouchListener.onSliding(mDownViewGroup, mDownPosition);
+                    return true;
+                } else if (move == SwipeGestureEngine.MOVE_START) {
                     cancelListViewEvent(event);
                 }
                 break;
@@ -307,30 +469,34 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
         return canSlideIn;
     }
 
-    private int getDirection(boolean isFarSwipe, boolean isRight) {
-        return isFarSwipe ?
-                (isRight ? SwipeDirections.DIRECTION_FAR_RIGHT     : SwipeDirections.DIRECTION_FAR_LEFT):
-                (isRight ? SwipeDirections.DIRECTION_NORMAL_RIGHT  : SwipeDirections.DIRECTION_NORMAL_LEFT);
+    private void record(MotionEvent event, int action) {
+        // Down, up, move and cancel, the actions the gesture depends on
+        if (action > MotionEvent.ACTION_CANCEL)
+            return;
+        int[] listViewCoordinates = getListViewCoordinates();
+        mMotionTrace.setSize(mListView.getWidth(), mListView.getHeight());
+        mMotionTrace.add(action, event.getEventTime(),
+                event.getRawX() - listViewCoordinates[0], event.getRawY() - listViewCoordinates[1]);
     }
 
     private void reset() {
+        // The VelocityTracker is kept for the next gesture, mEngine.isDown() tells whether it is in use
         if(mVelocityTracker != null)
-            mVelocityTracker.recycle();
-        mVelocityTracker = null;
+            mVelocityTracker.clear();
         mDownView = null;
         mDownViewGroup = null;
         mDownPosition = ListView.INVALID_POSITION;
-        mDownX = 0;
-        mDownY = 0;
-        mDirection = SwipeDirections.DIRECTION_NEUTRAL;
-        mIsMoving = false;
-        mIsFar = false;
-        mIsDown = false;
+        mEngine.reset();
+        mReleaseVelocity = 0;
     }
 
     private void cancel() {
-        if(mDownViewGroup != null && (mDownViewGroup.isSlideIn() || mDownViewGroup.getTranslationX() != 0))
-            mDownViewGroup.slideBack();
+        if(mDownViewGroup != null && (mDownViewGroup.isSlideIn() || mDownViewGroup.getTranslationX() != 0)) {
+            if (mReleaseVelocity != 0)
+                mDownViewGroup.slideBack(mReleaseVelocity, null);
+            else
+                mDownViewGroup.slideBack();
+        }
 //        if(hasSlideInView())
 //            slideBack();
     }
@@ -343,7 +509,7 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
     }
 
     private void addMovement(MotionEvent motionEvent, boolean compute) {
-        if (mVelocityTracker == null)
+        if (!mEngine.isDown())
             return;
 
         mVelocityTracker.addMovement(motionEvent);
@@ -360,62 +526,71 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
     }
 
     private void setDownView(View view) {
-        try {
+        // Rows of view types without swipe are not wrapped, they can't be swiped
+        if (view instanceof SwipeViewGroup) {
             mDownViewGroup = (SwipeViewGroup) view;
             mDownView = view;
         }
-        catch(Exception e) {
-            mDownView = view;
-        }
     }
 
     private void cancelListViewEvent(MotionEvent motionEvent) {
         // Cancel ListView's touch (un-highlighting the item)
+        // The event is turned into a cancel event and restored, instead of obtaining a copy
         mListView.requestDisallowInterceptTouchEvent(true);
-        MotionEvent cancelEvent = MotionEvent.obtain(motionEvent);
-        cancelEvent.setAction(MotionEvent.ACTION_CANCEL | (motionEvent.getActionIndex() << MotionEvent.ACTION_POINTER_INDEX_SHIFT));
-        mListView.onTouchEvent(cancelEvent);
-        cancelEvent.recycle();
+        int action = motionEvent.getAction();
+        motionEvent.setAction(MotionEvent.ACTION_CANCEL | (motionEvent.getActionIndex() << MotionEvent.ACTION_POINTER_INDEX_SHIFT));
+        mListView.onTouchEvent(motionEvent);
+        motionEvent.setAction(action);
     }
 
     private void dismiss(boolean dismissRight) {
-        final View downView = mDownView; // mDownView gets null'd before animation ends
-        final int downPosition = mDownPosition;
-        final int direction = mDirection;
-        final int translation = dismissRight ? mViewWidth : -mViewWidth;
+        // mDownView gets null'd before animation ends
+        // Only one dismiss runs at a time since touches are ignored meanwhile
+        mDismissView = mDownView;
+        mDismissPosition = mDownPosition;
+        mDismissDirection = mEngine.getDirection();
+        final int translation = dismissRight ? mEngine.getViewWidth() : -mEngine.getViewWidth();
         mIsPerformingDismiss = true;
-        mDownViewGroup.animateTranslationX(
-                (int) (translation * 0.997f), // HACK to prevent bug with view flashing big quickly
-                //mVelocityTracker.getXVelocity(pointerId),
-                new AnimatorListenerAdapter() {
-                    @Override
-                    public void onAnimationEnd(Animator animation) {
-                        performDismiss(downView, downPosition, direction);
-                        mIsPerformingDismiss = false;
-                    }
-                });
+        int translationX = (int) (translation * 0.997f); // HACK to prevent bug with view flashing big quickly
+        if (mReleaseVelocity != 0)
+            mDownViewGroup.animateTranslationX(translationX, mReleaseVelocity, mDismissListener);
+        else
+            mDownViewGroup.animateTranslationX(translationX, mDismissListener);
     }
 
     // Find the child view that was touched (perform a hit test)
+    // The children are ordered by their top, so the row under the touch is found with a binary
+    // search, then checked against its hit rect widened by its width on both sides
     private View getClickedView(MotionEvent motionEvent) {
-        Rect rect = new Rect();
-        int childCount = mListView.getChildCount();
-        int[] listViewCoordinates = new int[2];
-        mListView.getLocationOnScreen(listViewCoordinates);
+        final boolean trace = SwipeTrace.sEnabled;
+        if (trace)
+            SwipeTrace.beginSection(SwipeTrace.GET_CLICKED_VIEW);
+        int[] listViewCoordinates = getListViewCoordinates();
         int x = (int) motionEvent.getRawX() - listViewCoordinates[0];
         int y = (int) motionEvent.getRawY() - listViewCoordinates[1];
-        View child;
-        for (int i = 0; i < childCount; i++) {
-            child = mListView.getChildAt(i);
+        int index = SwipeMath.findRowAt(mChildBounds, mListView.getChildCount(), y);
+        View clickedView = null;
+        if (index != -1) {
+            View child = mListView.getChildAt(index);
+            Rect rect = mHitRect;
             child.getHitRect(rect);
             int width = rect.width();
             rect.left = rect.left - width;
             rect.right = rect.right + width;
-            if (rect.contains(x, y)) {
-                return child;
-            }
+            if (rect.contains(x, y))
+                clickedView = child;
         }
-        return null;
+        if (trace)
+            SwipeTrace.endSection();
+        return clickedView;
+    }
+
+    private int[] getListViewCoordinates() {
+        if (!mListViewCoordinatesValid) {
+            mListView.getLocationOnScreen(mListViewCoordinates);
+            mListViewCoordinatesValid = true;
+        }
+        return mListViewCoordinates;
     }
 
     private boolean isDownView(MotionEvent motionEvent) {
@@ -426,20 +601,15 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
     }
 
     private boolean canDismiss() {
-        return mDownViewGroup.getBackgroundType(mDirection) == SwipeViewGroup.LAYOUT_DISMISS;
-    }
-
-    private boolean isFling() {
-        float absVelocityX = Math.abs(mVelocityTracker.getXVelocity());
-        float absVelocityY = Math.abs(mVelocityTracker.getYVelocity());
-        return mMinFlingVelocity <= absVelocityX && absVelocityX <= mMaxFlingVelocity && absVelocityY < absVelocityX;
+        return mDownViewGroup.getBackgroundType(mEngine.getDirection()) == SwipeViewGroup.LAYOUT_DISMISS;
     }
 
     private void performDismiss(View dismissView, int dismissPosition, final int direction) {
-        mCallbacks.onSwipeToDismiss(dismissPosition, direction);
         mDownPosition = ListView.INVALID_POSITION; // Reset mDownPosition to avoid MotionEvent.ACTION_UP trying to start a dismiss
         dismissView.setAlpha(1f);
         dismissView.setTranslationX(0);
+        // Called last, so the callback can keep the row hidden while its dismiss is pending
+        mCallbacks.onSwipeToDismiss(dismissPosition, direction);
 /*
             // Send a cancel event
                     long time = SystemClock.uptimeMillis();
@@ -470,7 +640,13 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
 
     public void slideInView(int position, int direction) {
         if (mListView != null) {
+            final boolean trace = SwipeTrace.sEnabled;
+            if (trace)
+                SwipeTrace.beginSection(SwipeTrace.SLIDE_IN_VIEW);
             mSlideInView = position;
+            mSlideInDirection = direction == SwipeDirections.DIRECTION_NEUTRAL ? SwipeDirections.DIRECTION_NORMAL_RIGHT : direction;
+            boolean hasStableIds = mListView.getAdapter() != null && mListView.getAdapter().hasStableIds();
+            mSlideInId = position != -1 && hasStableIds ? mListView.getItemIdAtPosition(position) : ListView.INVALID_ROW_ID;
             int first = mListView.getFirstVisiblePosition();
             int count = mListView.getChildCount();
             for (int i = 0; i < count; i++) {
@@ -479,6 +655,7 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
                 if(v instanceof SwipeViewGroup) {
                     final SwipeViewGroup view = (SwipeViewGroup) v;
                     if (view.isSlideIn()) {
+                        view.countAllocation();
                         view.slideBack(new SwipeViewGroup.OnSlideBack() {
                             @Override
                             public void onSlideBackEnd(Animator animation) {
@@ -487,15 +664,51 @@ public class SwipeViewTouchListener implements View.OnTouchListener {
                         });
                     } else if (viewPosition == mSlideInView) {
                         int translationX = view.getWidth() - mSlideInOffset;
-                        view.slideIn(direction == SwipeDirections.DIRECTION_NEUTRAL ? SwipeDirections.DIRECTION_NORMAL_RIGHT : direction, translationX, null);
+                        // The row released by the finger settles from the finger velocity
+                        if (mReleaseVelocity != 0 && view == mDownViewGroup)
+                            view.slideIn(mSlideInDirection, mReleaseVelocity, translationX, null);
+                        else
+                            view.slideIn(mSlideInDirection, translationX, null);
                     }
                 }
             }
+            if (trace)
+                SwipeTrace.endSection();
         }
     }
 
     public void slideInView(int position) {
-        slideInView(position, mDirection);
+        slideInView(position, mEngine.getDirection());
+    }
+
+    /**
+     * Called when the data set changed, with stable ids. The slid in row is then found again by
+     * its item id, when it is bound with {@link #bindSlideInState(SwipeViewGroup, int, long)}.
+     */
+    void onDataSetChanged() {
+        if (mSlideInId != ListView.INVALID_ROW_ID)
+            mSlideInView = -1;
+    }
+
+    /**
+     * Open or close a row being bound, depending on whether it shows the slid in item. Rows that
+     * keep showing the same item keep their state and are not animated. The adapter loads the
+     * background of the open row afterwards if the row lacks it.
+     *
+     * @param view the row
+     * @param position the position the row now shows
+     * @param id the item id at that position
+     */
+    void bindSlideInState(SwipeViewGroup view, int position, long id) {
+        if (mSlideInId == ListView.INVALID_ROW_ID)
+            return;
+        if (id == mSlideInId) {
+            mSlideInView = position;
+            if (!view.isSlideIn() && view.getWidth() > 0)
+                view.setSlideIn(mSlideInDirection, view.getWidth() - mSlideInOffset);
+        } else if (view.isSlideIn()) {
+            view.resetViewPos();
+        }
     }
 
     public void toggleSlideInView(int position) {
@@ -0,0 +1,88 @@
+package ee.graph.swipeviewadapter;
+
+import android.view.View;
+import android.widget.ListView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that rows of an adapter with stable ids keep their background views and their slide in
+ * state across {@link SwipeViewAdapter#notifyDataSetChanged()} when they keep showing the same
+ * item, and that their backgrounds are bound to the new data.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SwipeDataChangeTest {
+    private static final int
+            WIDTH = 480,
+            HEIGHT = 800,
+            ROW_HEIGHT = SwipeListFixture.ROW_HEIGHT,
+            SETTLE_FRAMES = 60,
+            MOVE_FRAMES = 12;
+
+    private SwipeListFixture mList;
+    private ListView mListView;
+    private SwipeViewAdapter mAdapter;
+
+    @Before
+    public void setUp() {
+        mList = new SwipeListFixture(WIDTH, HEIGHT, true);
+        mListView = mList.getListView();
+        mAdapter = mList.getAdapter();
+    }
+
+    @Test
+    public void unchangedRowKeepsAndRebindsBackgrounds() {
+        // Swipe and come back, so the row loads its backgrounds and closes again
+        int y = ROW_HEIGHT + ROW_HEIGHT / 2;
+        swipe(20, 20 + WIDTH * 0.4f, 30, y);
+        SwipeViewGroup row = (SwipeViewGroup) mListView.getChildAt(1);
+        View background = row.getBackground(SwipeDirections.DIRECTION_NORMAL_RIGHT);
+        assertNotNull("Background loaded", background);
+        int getBackgroundCount = mList.getGetBackgroundCount();
+
+        mAdapter.notifyDataSetChanged();
+        SwipeListFixture.runFrames(SETTLE_FRAMES);
+
+        assertSame("Same row", row, mListView.getChildAt(1));
+        assertSame("Same background", background, row.getBackground(SwipeDirections.DIRECTION_NORMAL_RIGHT));
+        assertTrue("Backgrounds bound again", mList.getGetBackgroundCount() > getBackgroundCount);
+    }
+
+    @Test
+    public void slidInRowKeepsItsBackground() {
+        int y = ROW_HEIGHT / 2;
+        swipe(20, 20 + WIDTH * 0.4f, 20 + WIDTH * 0.4f, y);
+        assertEquals("Row slid in", 0, mAdapter.getSlideInViewPosition());
+        SwipeViewGroup row = (SwipeViewGroup) mListView.getChildAt(0);
+
+        mAdapter.notifyDataSetChanged();
+        SwipeListFixture.runFrames(SETTLE_FRAMES);
+
+        assertEquals("Still slid in", 0, mAdapter.getSlideInViewPosition());
+        assertSame("Same row", row, mListView.getChildAt(0));
+        assertTrue("Row open", row.isSlideIn());
+        assertTrue("Background shown", row.hasBackground(row.getSlideInView()));
+    }
+
+    /**
+     * Swipe a row from fromX to toX, then release it at upX
+     */
+    private void swipe(float fromX, float toX, float upX, float y) {
+        mList.down(fromX, y);
+        mList.moveTo(fromX, y, toX, y, MOVE_FRAMES);
+        if (upX != toX)
+            mList.moveTo(toX, y, upX, y, 1);
+        mList.up(upX, y);
+        SwipeListFixture.runFrames(SETTLE_FRAMES);
+    }
+}
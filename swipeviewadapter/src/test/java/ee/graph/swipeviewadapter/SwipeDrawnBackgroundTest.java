@@ -0,0 +1,58 @@
+package ee.graph.swipeviewadapter;
+
+import android.graphics.Canvas;
+import android.widget.ListView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that rows with a {@link SwipeBackgroundDrawer} change height like rows with a view
+ * background of the same type.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SwipeDrawnBackgroundTest {
+    private static final int
+            WIDTH = 480,
+            HEIGHT = 800,
+            ROW_HEIGHT = SwipeListFixture.ROW_HEIGHT,
+            SETTLE_FRAMES = 60,
+            MOVE_FRAMES = 12;
+
+    private SwipeListFixture mList;
+    private ListView mListView;
+
+    @Before
+    public void setUp() {
+        mList = new SwipeListFixture(WIDTH, HEIGHT);
+        mListView = mList.getListView();
+        mList.getAdapter().addBackground(SwipeDirections.DIRECTION_FAR_RIGHT, new SwipeBackgroundDrawer() {
+            @Override
+            public void draw(Canvas canvas, int direction, int left, int top, int right, int bottom, float swipeRatio) {
+            }
+        }, SwipeViewGroup.LAYOUT_DISMISS);
+    }
+
+    @Test
+    public void dismissShrinksTheRow() {
+        int y = 2 * ROW_HEIGHT + ROW_HEIGHT / 2;
+        SwipeViewGroup row = (SwipeViewGroup) mListView.getChildAt(2);
+        assertEquals("Row height", ROW_HEIGHT, row.getHeight());
+
+        mList.down(20, y);
+        mList.moveTo(20, y, 20 + WIDTH * 0.7f, y, MOVE_FRAMES);
+        assertTrue("Row shrinks during the far swipe, height " + row.getHeight(), row.getHeight() < ROW_HEIGHT);
+        assertTrue("Row still shown", row.getHeight() > 0);
+
+        mList.up(20 + WIDTH * 0.7f, y);
+        SwipeListFixture.runFrames(SETTLE_FRAMES);
+        assertEquals("Item removed", SwipeListFixture.ITEM_COUNT - 1, mList.getItemCount());
+    }
+}
@@ -0,0 +1,289 @@
+package ee.graph.swipeviewadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the gesture rules of {@link SwipeGestureEngine} on plain coordinates, without views.
+ */
+public class SwipeGestureEngineTest {
+    private static final int
+            SLOP = 10,
+            MIN_FLING_VELOCITY = 100,
+            MAX_FLING_VELOCITY = 8000,
+            WIDTH = 1000;
+
+    // Rows are WIDTH wide: normal swipes past 250, far swipes past 500
+    private static final float
+            NORMAL_FRACTION = 0.25f,
+            FAR_FRACTION = 0.5f;
+
+    private SwipeGestureEngine mEngine;
+
+    @Before
+    public void setUp() {
+        mEngine = new SwipeGestureEngine(SLOP, MIN_FLING_VELOCITY, MAX_FLING_VELOCITY);
+        mEngine.setViewWidth(WIDTH);
+        mEngine.setNormalSwipeFraction(NORMAL_FRACTION);
+        mEngine.setFarSwipeFraction(FAR_FRACTION);
+    }
+
+    @Test
+    public void startsPastTheSlop() {
+        enableAll();
+        mEngine.onDown(100, 100);
+        assertEquals(SwipeGestureEngine.MOVE_NONE, mEngine.onMove(100 + SLOP, 100));
+        assertFalse(mEngine.isMoving());
+        assertEquals(SwipeGestureEngine.MOVE_START, mEngine.onMove(100 + SLOP + 1, 100));
+        assertTrue(mEngine.isMoving());
+        assertEquals(SwipeGestureEngine.MOVE_SLIDE, mEngine.onMove(100 + SLOP + 2, 100));
+    }
+
+    @Test
+    public void verticalMoveDoesNotStart() {
+        enableAll();
+        mEngine.onDown(100, 100);
+        assertEquals(SwipeGestureEngine.MOVE_NONE, mEngine.onMove(130, 140));
+        assertEquals(SwipeGestureEngine.MOVE_NONE, mEngine.onMove(130, 130));
+        assertFalse(mEngine.isMoving());
+        assertEquals(SwipeGestureEngine.MOVE_START, mEngine.onMove(130, 129));
+    }
+
+    @Test
+    public void translationLeavesOutTheSlop() {
+        enableAll();
+        mEngine.onDown(0, 0);
+        mEngine.onMove(SLOP + 1, 0);
+        assertEquals(SwipeGestureEngine.MOVE_SLIDE, mEngine.onMove(100, 0));
+        assertEquals(100 - SLOP, mEngine.getTranslationX(), 0);
+        assertEquals(SwipeDirections.DIRECTION_NORMAL_RIGHT, mEngine.getDirection());
+
+        mEngine.onDown(0, 0);
+        mEngine.onMove(-SLOP - 1, 0);
+        assertEquals(SwipeGestureEngine.MOVE_SLIDE, mEngine.onMove(-100, 0));
+        assertEquals(-100 + SLOP, mEngine.getTranslationX(), 0);
+        assertEquals(SwipeDirections.DIRECTION_NORMAL_LEFT, mEngine.getDirection());
+    }
+
+    @Test
+    public void farPastTheFarFraction() {
+        enableAll();
+        mEngine.onDown(0, 0);
+        mEngine.onMove(SLOP + 1, 0);
+        mEngine.onMove(500, 0);
+        assertFalse(mEngine.isFar());
+        assertEquals(SwipeDirections.DIRECTION_NORMAL_RIGHT, mEngine.getDirection());
+        mEngine.onMove(501, 0);
+        assertTrue(mEngine.isFar());
+        assertEquals(SwipeDirections.DIRECTION_FAR_RIGHT, mEngine.getDirection());
+
+        mEngine.onDown(0, 0);
+        mEngine.onMove(-SLOP - 1, 0);
+        mEngine.onMove(-501, 0);
+        assertEquals(SwipeDirections.DIRECTION_FAR_LEFT, mEngine.getDirection());
+    }
+
+    @Test
+    public void crossingOverIsNormalFirst() {
+        enableAll();
+        mEngine.onDown(0, 0);
+        mEngine.onMove(SLOP + 1, 0);
+        mEngine.onMove(600, 0);
+        assertEquals(SwipeDirections.DIRECTION_FAR_RIGHT, mEngine.getDirection());
+        // The row crosses its place within a single event, it isn't far on the other side yet
+        mEngine.onMove(-600, 0);
+        assertEquals(SwipeDirections.DIRECTION_NORMAL_LEFT, mEngine.getDirection());
+        mEngine.onMove(-600, 0);
+        assertEquals(SwipeDirections.DIRECTION_FAR_LEFT, mEngine.getDirection());
+    }
+
+    @Test
+    public void disabledDirectionDoesNothing() {
+        mEngine.addEnabledDirection(SwipeDirections.DIRECTION_NORMAL_RIGHT);
+        assertFalse(mEngine.isEnabledDirection(SwipeDirections.DIRECTION_NORMAL_LEFT));
+        mEngine.onDown(0, 0);
+        mEngine.onMove(-SLOP - 1, 0);
+        assertEquals(SwipeGestureEngine.MOVE_DISABLED, mEngine.onMove(-300, 0));
+        assertEquals(SwipeGestureEngine.UP_NONE, mEngine.onUp(-300, 0, 0, false, true));
+    }
+
+    @Test
+    public void slideInPastTheNormalFraction() {
+        enableAll();
+        assertEquals(SwipeGestureEngine.UP_CANCEL, swipeTo(250, 0, false, true));
+        assertEquals(SwipeGestureEngine.UP_SLIDE_IN, swipeTo(251, 0, false, true));
+        assertEquals(SwipeGestureEngine.UP_CANCEL, swipeTo(251, 0, false, false));
+    }
+
+    @Test
+    public void dismissInTheDirectionOfTheSwipe() {
+        enableAll();
+        assertEquals(SwipeGestureEngine.UP_DISMISS_RIGHT, swipeTo(600, 0, true, true));
+        assertEquals(SwipeGestureEngine.UP_DISMISS_LEFT, swipeTo(-600, 0, true, true));
+        // A swipe that wins over the fling keeps its own direction
+        assertEquals(SwipeGestureEngine.UP_DISMISS_RIGHT, swipeTo(600, -1000, true, true));
+    }
+
+    @Test
+    public void shortFlingValidates() {
+        enableAll();
+        assertEquals(SwipeGestureEngine.UP_DISMISS_RIGHT, swipeTo(50, 1000, true, true));
+        assertEquals(SwipeGestureEngine.UP_SLIDE_IN, swipeTo(50, 1000, false, true));
+        assertEquals(SwipeGestureEngine.UP_DISMISS_LEFT, swipeTo(-50, -1000, true, true));
+    }
+
+    @Test
+    public void flingOutOfBoundsCancels() {
+        enableAll();
+        assertEquals(SwipeGestureEngine.UP_CANCEL, swipeTo(50, MIN_FLING_VELOCITY - 1, true, true));
+        assertEquals(SwipeGestureEngine.UP_CANCEL, swipeTo(50, MAX_FLING_VELOCITY + 1, true, true));
+
+        // Mostly vertical
+        mEngine.onDown(0, 0);
+        mEngine.onMove(SLOP + 1, 0);
+        mEngine.onMove(50, 0);
+        assertEquals(SwipeGestureEngine.UP_CANCEL, mEngine.onUp(50, 1000, 1000, true, true));
+    }
+
+    @Test
+    public void comingBackCancels() {
+        enableAll();
+        mEngine.onDown(0, 0);
+        mEngine.onMove(SLOP + 1, 0);
+        mEngine.onMove(400, 0);
+        mEngine.onMove(300, 0);
+        // Past the normal fraction, but moving back to its place
+        assertEquals(SwipeGestureEngine.UP_CANCEL, mEngine.onUp(300, 0, 0, true, true));
+    }
+
+    @Test
+    public void nothingWithoutDown() {
+        enableAll();
+        assertEquals(SwipeGestureEngine.MOVE_NONE, mEngine.onMove(300, 0));
+        assertEquals(SwipeGestureEngine.UP_NONE, mEngine.onUp(300, 1000, 0, true, true));
+
+        mEngine.onDown(0, 0);
+        mEngine.onMove(SLOP + 1, 0);
+        mEngine.onMove(300, 0);
+        mEngine.reset();
+        assertFalse(mEngine.isDown());
+        assertFalse(mEngine.isMoving());
+        assertEquals(SwipeDirections.DIRECTION_NEUTRAL, mEngine.getDirection());
+        assertEquals(0, mEngine.getTranslationX(), 0);
+        assertEquals(SwipeGestureEngine.MOVE_NONE, mEngine.onMove(300, 0));
+    }
+
+    /**
+     * Random gestures on random sets of enabled directions, checked against the rules that hold
+     * for every event
+     */
+    @Test
+    public void randomGesturesKeepTheRules() {
+        Random random = new Random(42);
+        for (int gesture = 0; gesture < 10000; gesture++) {
+            SwipeGestureEngine engine = new SwipeGestureEngine(SLOP, MIN_FLING_VELOCITY, MAX_FLING_VELOCITY);
+            engine.setViewWidth(WIDTH);
+            engine.setNormalSwipeFraction(NORMAL_FRACTION);
+            engine.setFarSwipeFraction(FAR_FRACTION);
+            for (int direction = SwipeDirections.DIRECTION_FAR_LEFT; direction <= SwipeDirections.DIRECTION_FAR_RIGHT; direction++) {
+                if (direction != SwipeDirections.DIRECTION_NEUTRAL && random.nextBoolean())
+                    engine.addEnabledDirection(direction);
+            }
+
+            int downX = random.nextInt(WIDTH);
+            int downY = random.nextInt(WIDTH);
+            engine.onDown(downX, downY);
+            boolean started = false;
+            int x = downX;
+            int y = downY;
+            int moves = random.nextInt(30);
+            for (int i = 0; i < moves; i++) {
+                x += random.nextInt(201) - 100;
+                y += random.nextInt(41) - 20;
+                int result = engine.onMove(x, y);
+                String event = "gesture " + gesture + " move " + i;
+                int deltaX = x - downX;
+                switch (result) {
+                    case SwipeGestureEngine.MOVE_NONE:
+                        assertFalse(event + " stopped after the start", started);
+                        assertFalse(event, engine.isMoving());
+                        break;
+                    case SwipeGestureEngine.MOVE_START:
+                        assertFalse(event + " started twice", started);
+                        assertTrue(event + " started within the slop", Math.abs(deltaX) > SLOP);
+                        assertTrue(event + " started vertically", Math.abs(y - downY) < Math.abs(deltaX));
+                        started = true;
+                        break;
+                    case SwipeGestureEngine.MOVE_SLIDE:
+                        assertTrue(event + " slid before the start", started);
+                        assertTrue(event + " slid in a disabled direction", engine.isEnabledDirection(engine.getDirection()));
+                        assertEquals(event + " slid the wrong way", deltaX > 0, engine.getDirection() > 0);
+                        assertEquals(event + " slop", SLOP, Math.abs(deltaX - engine.getTranslationX()), 0);
+                        break;
+                    case SwipeGestureEngine.MOVE_DISABLED:
+                        assertTrue(event + " disabled before the start", started);
+                        assertFalse(event, engine.isEnabledDirection(engine.getDirection()));
+                        break;
+                    default:
+                        throw new AssertionError(event + " unknown result " + result);
+                }
+                if (engine.isFar())
+                    assertTrue(event + " far too early", Math.abs(deltaX) > WIDTH * FAR_FRACTION);
+            }
+
+            float velocityX = random.nextInt(2 * MAX_FLING_VELOCITY) - MAX_FLING_VELOCITY;
+            float velocityY = random.nextInt(2 * MAX_FLING_VELOCITY) - MAX_FLING_VELOCITY;
+            boolean canDismiss = random.nextBoolean();
+            boolean canSlideIn = random.nextBoolean();
+            int result = engine.onUp(x, velocityX, velocityY, canDismiss, canSlideIn);
+            String event = "gesture " + gesture + " up";
+            int deltaX = x - downX;
+            boolean isSwipe = Math.abs(deltaX) > WIDTH * NORMAL_FRACTION;
+            boolean isFling = MIN_FLING_VELOCITY <= Math.abs(velocityX) && Math.abs(velocityX) <= MAX_FLING_VELOCITY
+                    && Math.abs(velocityY) < Math.abs(velocityX);
+            switch (result) {
+                case SwipeGestureEngine.UP_NONE:
+                    assertFalse(event, engine.isEnabledDirection(engine.getDirection()));
+                    break;
+                case SwipeGestureEngine.UP_CANCEL:
+                    break;
+                case SwipeGestureEngine.UP_SLIDE_IN:
+                    assertTrue(event + " slid in without a swipe", started && (isSwipe || isFling));
+                    assertTrue(event, canSlideIn && !canDismiss);
+                    break;
+                case SwipeGestureEngine.UP_DISMISS_LEFT:
+                case SwipeGestureEngine.UP_DISMISS_RIGHT:
+                    assertTrue(event + " dismissed without a swipe", started && (isSwipe || isFling));
+                    assertTrue(event, canDismiss);
+                    boolean right = isSwipe ? deltaX > 0 : velocityX > 0;
+                    assertEquals(event + " dismissed the wrong way", right, result == SwipeGestureEngine.UP_DISMISS_RIGHT);
+                    break;
+                default:
+                    throw new AssertionError(event + " unknown result " + result);
+            }
+        }
+    }
+
+    private void enableAll() {
+        mEngine.addEnabledDirection(SwipeDirections.DIRECTION_NORMAL_LEFT);
+        mEngine.addEnabledDirection(SwipeDirections.DIRECTION_NORMAL_RIGHT);
+        mEngine.addEnabledDirection(SwipeDirections.DIRECTION_FAR_LEFT);
+        mEngine.addEnabledDirection(SwipeDirections.DIRECTION_FAR_RIGHT);
+    }
+
+    /**
+     * Swipe straight from 0 to x, then release with the given horizontal velocity
+     */
+    private int swipeTo(int x, float velocityX, boolean canDismiss, boolean canSlideIn) {
+        mEngine.onDown(0, 0);
+        mEngine.onMove(x > 0 ? SLOP + 1 : -SLOP - 1, 0);
+        mEngine.onMove(x, 0);
+        return mEngine.onUp(x, velocityX, 0, canDismiss, canSlideIn);
+    }
+}
@@ -0,0 +1,315 @@
+package ee.graph.swipeviewadapter;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+import android.widget.FrameLayout;
+import android.widget.ListView;
+import android.widget.TextView;
+
+import org.robolectric.Robolectric;
+import org.robolectric.util.ActivityController;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A {@link ListView} backed by a {@link SwipeViewAdapter}, laid out at the origin of a visible
+ * activity, for the Robolectric suites. Rows are a plain view of {@link #ROW_HEIGHT}, with a
+ * normal background to the right, a dismiss background far to the right and a wrap_content
+ * background of {@link #EXPANDED_HEIGHT} to the left, which grows the row. Dismissing a row
+ * removes its item.
+ *
+ * The work done is counted: getView() calls of the wrapped adapter, inflated views, measure
+ * passes of the row contents and backgrounds, layout requests and layout passes reaching the
+ * ListView, and onGetBackground() calls.
+ */
+class SwipeListFixture {
+    static final int
+            ROW_HEIGHT = 120,
+            EXPANDED_HEIGHT = 2 * ROW_HEIGHT,
+            ITEM_COUNT = 1000,
+            FRAME_MILLIS = 16;
+
+    // Counters, incremented by the counting views below
+    private int
+            mGetViewCount,
+            mInflateCount,
+            mMeasureCount,
+            mLayoutRequestCount,
+            mLayoutCount,
+            mGetBackgroundCount;
+    private int mItemCount = ITEM_COUNT;
+
+    private final ListView mListView;
+    private final SwipeViewAdapter mAdapter;
+    private long mDownTime;
+
+    SwipeListFixture(int width, int height) {
+        this(width, height, false);
+    }
+
+    /**
+     * @param stableIds whether the wrapped adapter has stable ids, the id of an item is its position
+     */
+    SwipeListFixture(int width, int height, boolean stableIds) {
+        ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).create();
+        Activity activity = controller.get();
+        activity.requestWindowFeature(Window.FEATURE_NO_TITLE);
+        Context context = new CountingContext(activity);
+
+        mListView = new CountingListView(context);
+        mAdapter = new SwipeViewAdapter(new RowAdapter(stableIds)) {
+            @Override
+            public void onGetBackground(boolean isCreate, int direction, int position, View background, SwipeViewGroup parent) {
+                mGetBackgroundCount++;
+                if (isCreate && direction == SwipeDirections.DIRECTION_NORMAL_LEFT)
+                    background.setMinimumHeight(EXPANDED_HEIGHT);
+            }
+        };
+        mAdapter.setListView(mListView)
+                .setSwipeActionListener(new ActionListener())
+                .addBackground(SwipeDirections.DIRECTION_NORMAL_RIGHT, android.R.layout.simple_list_item_1)
+                .addBackground(SwipeDirections.DIRECTION_FAR_RIGHT, android.R.layout.simple_list_item_1, SwipeViewGroup.LAYOUT_DISMISS)
+                .addBackground(SwipeDirections.DIRECTION_NORMAL_LEFT, android.R.layout.simple_list_item_1, SwipeViewGroup.LAYOUT_WRAP_CONTENT);
+        mListView.setAdapter(mAdapter);
+
+        FrameLayout root = new FrameLayout(activity);
+        root.addView(mListView, new FrameLayout.LayoutParams(width, height));
+        activity.setContentView(root);
+        controller.start().resume().visible();
+        runFrames(2);
+
+        // The touch listener hit tests with raw coordinates, the list must be at the origin
+        int[] location = new int[2];
+        mListView.getLocationOnScreen(location);
+        assertEquals("List left", 0, location[0]);
+        assertEquals("List top", 0, location[1]);
+        assertTrue("Rows laid out", mListView.getChildCount() > 0);
+    }
+
+    /**
+     * Run the frame callbacks, animations and traversals due in the next frames
+     */
+    static void runFrames(int count) {
+        for (int i = 0; i < count; i++)
+            Robolectric.getForegroundThreadScheduler().advanceBy(FRAME_MILLIS);
+    }
+
+    /**
+     * Press the list at x, y, then run the next frame
+     */
+    void down(float x, float y) {
+        mDownTime = SystemClock.uptimeMillis();
+        dispatch(MotionEvent.ACTION_DOWN, x, y);
+    }
+
+    /**
+     * Move the finger in a straight line, one event per frame
+     */
+    void moveTo(float fromX, float fromY, float toX, float toY, int frames) {
+        for (int i = 1; i <= frames; i++) {
+            float fraction = i / (float) frames;
+            dispatch(MotionEvent.ACTION_MOVE, fromX + (toX - fromX) * fraction, fromY + (toY - fromY) * fraction);
+        }
+    }
+
+    /**
+     * Release the finger at x, y, then run the next frame
+     */
+    void up(float x, float y) {
+        dispatch(MotionEvent.ACTION_UP, x, y);
+    }
+
+    private void dispatch(int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(mDownTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        mListView.dispatchTouchEvent(event);
+        event.recycle();
+        runFrames(1);
+    }
+
+    ListView getListView() {
+        return mListView;
+    }
+
+    SwipeViewAdapter getAdapter() {
+        return mAdapter;
+    }
+
+    int getItemCount() {
+        return mItemCount;
+    }
+
+    int getGetViewCount() {
+        return mGetViewCount;
+    }
+
+    int getInflateCount() {
+        return mInflateCount;
+    }
+
+    int getMeasureCount() {
+        return mMeasureCount;
+    }
+
+    int getLayoutRequestCount() {
+        return mLayoutRequestCount;
+    }
+
+    int getLayoutCount() {
+        return mLayoutCount;
+    }
+
+    int getGetBackgroundCount() {
+        return mGetBackgroundCount;
+    }
+
+    /**
+     * Inflates backgrounds with a LayoutInflater that counts the views it creates
+     */
+    private class CountingContext extends ContextWrapper {
+        private LayoutInflater mInflater;
+
+        CountingContext(Context base) {
+            super(base);
+        }
+
+        @Override
+        public Object getSystemService(String name) {
+            if (!LAYOUT_INFLATER_SERVICE.equals(name))
+                return super.getSystemService(name);
+            if (mInflater == null) {
+                mInflater = LayoutInflater.from(getBaseContext()).cloneInContext(this);
+                mInflater.setFactory2(new LayoutInflater.Factory2() {
+                    @Override
+                    public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
+                        return onCreateView(name, context, attrs);
+                    }
+
+                    @Override
+                    public View onCreateView(String name, Context context, AttributeSet attrs) {
+                        mInflateCount++;
+                        return "TextView".equals(name) ? new CountingTextView(context, attrs) : null;
+                    }
+                });
+            }
+            return mInflater;
+        }
+    }
+
+    private class CountingListView extends ListView {
+        CountingListView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestLayout() {
+            if (!isLayoutRequested())
+                mLayoutRequestCount++;
+            super.requestLayout();
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+            mLayoutCount++;
+            super.onLayout(changed, l, t, r, b);
+        }
+    }
+
+    private class CountingTextView extends TextView {
+        CountingTextView(Context context, AttributeSet attrs) {
+            super(context, attrs);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            mMeasureCount++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+    }
+
+    private class CountingView extends View {
+        CountingView(Context context) {
+            super(context);
+            setMinimumHeight(ROW_HEIGHT);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            mMeasureCount++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+    }
+
+    private class RowAdapter extends BaseAdapter {
+        private final boolean mStableIds;
+
+        RowAdapter(boolean stableIds) {
+            mStableIds = stableIds;
+        }
+
+        @Override
+        public int getCount() {
+            return mItemCount;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return position;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return mStableIds;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            mGetViewCount++;
+            return convertView != null ? convertView : new CountingView(parent.getContext());
+        }
+    }
+
+    private class ActionListener implements SwipeViewAdapter.SwipeActionListener {
+        @Override
+        public boolean hasActions(int position) {
+            return true;
+        }
+
+        @Override
+        public void onSwipeToDismiss(int position, int direction) {
+            mItemCount--;
+            mAdapter.notifyDataSetChanged();
+        }
+
+        @Override
+        public void onSwipeNormal(int position, int direction) {
+        }
+
+        @Override
+        public void onScrollStateChanged(AbsListView absListView, int scrollState) {
+        }
+
+        @Override
+        public void onScroll(AbsListView absListView, int i, int i1, int i2) {
+        }
+
+        @Override
+        public void onSliding(SwipeViewGroup swipeViewGroup, int position) {
+        }
+    }
+}
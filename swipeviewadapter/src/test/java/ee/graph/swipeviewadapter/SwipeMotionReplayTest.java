@@ -0,0 +1,151 @@
+package ee.graph.swipeviewadapter;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.widget.ListView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.Scheduler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays the {@link SwipeMotionTrace} files of the traces resource directory against a
+ * {@link ListView} backed by a {@link SwipeViewAdapter}, on the simulated clock of Robolectric:
+ * the main looper is paused, and runnables and animation frames only run as the clock is
+ * advanced to the time of each event, one frame at a time. A trace of minutes replays in seconds.
+ *
+ * The work done is counted and written to build/reports/swipe-replay/[trace].properties, so the
+ * reports of two builds can be compared. Each trace is replayed twice to check that the counts
+ * don't depend on anything but the trace. To reproduce a session, record it on the device with
+ * {@link SwipeViewAdapter#setMotionTrace(SwipeMotionTrace)}, write it with
+ * {@link SwipeMotionTrace#writeTo(java.io.OutputStream)} and add the file to the traces.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SwipeMotionReplayTest {
+    private static final String TRACES = "traces";
+    private static final File REPORTS = new File("build/reports/swipe-replay");
+
+    private static final int
+            DEFAULT_WIDTH = 480,
+            DEFAULT_HEIGHT = 800,
+            FRAME_MILLIS = SwipeListFixture.FRAME_MILLIS,
+            SETTLE_FRAMES = 60;
+
+    // Named like the SwipeMetrics.PHASE_ constants they are indexed by
+    private static final String[] PHASES = {
+            "bind", "loadBackgrounds", "inflate", "measure", "layoutRequest", "frame", "dismiss", "allocation"
+    };
+
+    // Frames run by the running replay
+    private int mFrameCount;
+
+    @Test
+    public void replayTraces() throws Exception {
+        URL traces = getClass().getResource(TRACES);
+        assertNotNull("Missing " + TRACES, traces);
+        File[] files = new File(traces.toURI()).listFiles();
+        assertNotNull(files);
+        Arrays.sort(files);
+        int replayed = 0;
+        for (File file : files) {
+            if (!file.getName().endsWith(".swmt"))
+                continue;
+            SwipeMotionTrace trace = read(file);
+            assertTrue("Empty trace " + file.getName(), trace.size() > 0);
+            Properties counts = replay(trace);
+            assertEquals("Replay of " + file.getName() + " is deterministic", counts, replay(trace));
+            writeReport(file.getName(), counts);
+            replayed++;
+        }
+        assertTrue("No trace in " + TRACES, replayed > 0);
+    }
+
+    private static SwipeMotionTrace read(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return SwipeMotionTrace.readFrom(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return the work done while replaying the trace and letting the list settle
+     */
+    private Properties replay(SwipeMotionTrace trace) {
+        Scheduler scheduler = Robolectric.getForegroundThreadScheduler();
+        scheduler.pause();
+        // Traces recorded before the list was laid out have no size
+        SwipeListFixture list = new SwipeListFixture(trace.getWidth() > 0 ? trace.getWidth() : DEFAULT_WIDTH,
+                trace.getHeight() > 0 ? trace.getHeight() : DEFAULT_HEIGHT);
+        ListView listView = list.getListView();
+        SwipeMetrics metrics = new SwipeMetrics();
+        list.getAdapter().setMetricsListener(metrics);
+        int getViewCount = list.getGetViewCount();
+        int layoutCount = list.getLayoutCount();
+        mFrameCount = 0;
+
+        long start = SystemClock.uptimeMillis();
+        long downTime = start;
+        for (int i = 0; i < trace.size(); i++) {
+            long time = start + trace.getEventTime(i);
+            while (SystemClock.uptimeMillis() + FRAME_MILLIS <= time)
+                runFrame(scheduler);
+            if (SystemClock.uptimeMillis() < time)
+                scheduler.advanceBy(time - SystemClock.uptimeMillis());
+            int action = trace.getAction(i);
+            if (action == MotionEvent.ACTION_DOWN)
+                downTime = time;
+            MotionEvent event = MotionEvent.obtain(downTime, time, action, trace.getX(i), trace.getY(i), 0);
+            listView.dispatchTouchEvent(event);
+            event.recycle();
+        }
+        for (int i = 0; i < SETTLE_FRAMES; i++)
+            runFrame(scheduler);
+
+        Properties counts = new Properties();
+        counts.setProperty("events", Integer.toString(trace.size()));
+        counts.setProperty("frames", Integer.toString(mFrameCount));
+        counts.setProperty("getView", Integer.toString(list.getGetViewCount() - getViewCount));
+        counts.setProperty("layout", Integer.toString(list.getLayoutCount() - layoutCount));
+        counts.setProperty("items", Integer.toString(list.getItemCount()));
+        for (int phase = 0; phase < SwipeMetrics.PHASE_COUNT; phase++)
+            counts.setProperty(PHASES[phase], Long.toString(metrics.getCount(phase)));
+        return counts;
+    }
+
+    private void runFrame(Scheduler scheduler) {
+        scheduler.advanceBy(FRAME_MILLIS);
+        mFrameCount++;
+    }
+
+    private static void writeReport(String traceName, Properties counts) {
+        if (!REPORTS.isDirectory() && !REPORTS.mkdirs())
+            return;
+        try {
+            OutputStream out = new FileOutputStream(new File(REPORTS, traceName.replace(".swmt", ".properties")));
+            counts.store(out, "Work done replaying " + traceName);
+            out.close();
+        } catch (IOException e) {
+            // The report is a convenience, the replay still ran
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package ee.graph.swipeviewadapter;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.ListView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scripts gestures through the {@link SwipeViewTouchListener} of a {@link ListView} backed by a
+ * {@link SwipeViewAdapter}, one event per simulated frame, and checks the work done in the worst
+ * frame of each gesture against the budgets recorded in swipe-performance-budgets.properties.
+ *
+ * Counted per frame by {@link SwipeListFixture}: getView() calls of the wrapped adapter,
+ * inflated views, measure passes of the row contents and backgrounds, layout requests and layout
+ * passes reaching the ListView, and the objects the library creates, reported as
+ * {@link SwipeMetrics#PHASE_ALLOCATION}. The bytes allocated by the thread are not counted: under
+ * Robolectric the shadows of the framework allocate far more than the library, and vary from run
+ * to run.
+ *
+ * The height of the row is checked during and after each gesture, since fewer layout requests
+ * can also mean a row that stopped growing or shrinking.
+ *
+ * Every run writes the values it measured to
+ * build/reports/swipe-performance/measured-budgets.properties, in the format of the budgets
+ * file: copy it over the budgets after a change that is expected to cost more or less.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SwipePerformanceTest {
+    private static final String BUDGETS = "swipe-performance-budgets.properties";
+    private static final File MEASURED_BUDGETS = new File("build/reports/swipe-performance/measured-budgets.properties");
+
+    private static final int
+            WIDTH = 480,
+            HEIGHT = 800,
+            ROW_HEIGHT = SwipeListFixture.ROW_HEIGHT,
+            SETTLE_FRAMES = 60,
+            MOVE_FRAMES = 12;
+
+    private static final String[] METRICS = {
+            "getView", "inflate", "measure", "layoutRequest", "layout", "allocations"
+    };
+
+    private SwipeListFixture mList;
+    private ListView mListView;
+    private SwipeViewAdapter mAdapter;
+    private final SwipeMetrics mMetrics = new SwipeMetrics();
+    private final List<MotionEvent> mEvents = new ArrayList<>();
+    // Worst frame of the running gesture, indexed like METRICS
+    private final long[] mWorstFrame = new long[METRICS.length];
+
+    @Before
+    public void setUp() {
+        mList = new SwipeListFixture(WIDTH, HEIGHT);
+        mListView = mList.getListView();
+        mAdapter = mList.getAdapter();
+        mAdapter.setMetricsListener(mMetrics);
+    }
+
+    @Test
+    public void swipeAndRelease() {
+        int y = ROW_HEIGHT + ROW_HEIGHT / 2;
+        View row = mListView.getChildAt(1);
+        down(20, y);
+        moveTo(20, y, 20 + WIDTH * 0.4f, y);
+        assertEquals("Row height during the swipe", ROW_HEIGHT, row.getHeight());
+        moveTo(20 + WIDTH * 0.4f, y, 30, y);
+        up(30, y);
+        settle();
+        assertEquals("Row height after the swipe", ROW_HEIGHT, row.getHeight());
+        checkBudgets("swipe");
+    }
+
+    @Test
+    public void slideInAndBack() {
+        int y = ROW_HEIGHT / 2;
+        View row = mListView.getChildAt(0);
+        down(20, y);
+        moveTo(20, y, 20 + WIDTH * 0.4f, y);
+        up(20 + WIDTH * 0.4f, y);
+        settle();
+        assertTrue("Row slid in", mAdapter.hasSlideInView());
+        assertEquals("Row height while slid in", ROW_HEIGHT, row.getHeight());
+        mAdapter.slideBack();
+        settle();
+        assertEquals("Row height after the slide back", ROW_HEIGHT, row.getHeight());
+        checkBudgets("slideIn");
+    }
+
+    @Test
+    public void expandWrapContentBackground() {
+        int y = ROW_HEIGHT / 2;
+        View row = mListView.getChildAt(0);
+        down(WIDTH - 20, y);
+        moveTo(WIDTH - 20, y, WIDTH - 20 - WIDTH * 0.4f, y);
+        assertTrue("Row grows with the background, height " + row.getHeight(), row.getHeight() > ROW_HEIGHT);
+        assertTrue("Row not taller than the background", row.getHeight() <= SwipeListFixture.EXPANDED_HEIGHT);
+        moveTo(WIDTH - 20 - WIDTH * 0.4f, y, WIDTH - 30, y);
+        up(WIDTH - 30, y);
+        settle();
+        assertEquals("Row height after the swipe", ROW_HEIGHT, row.getHeight());
+        checkBudgets("expand");
+    }
+
+    @Test
+    public void dismiss() {
+        int y = 2 * ROW_HEIGHT + ROW_HEIGHT / 2;
+        View row = mListView.getChildAt(2);
+        down(20, y);
+        moveTo(20, y, 20 + WIDTH * 0.7f, y);
+        assertTrue("Row shrinks during the far swipe, height " + row.getHeight(), row.getHeight() < ROW_HEIGHT);
+        up(20 + WIDTH * 0.7f, y);
+        settle();
+        assertEquals("Item removed", SwipeListFixture.ITEM_COUNT - 1, mList.getItemCount());
+        assertEquals("Next item in its place", ROW_HEIGHT, mListView.getChildAt(2).getHeight());
+        checkBudgets("dismiss");
+    }
+
+    @Test
+    public void fling() {
+        down(WIDTH / 2, HEIGHT - 20);
+        moveTo(WIDTH / 2, HEIGHT - 20, WIDTH / 2, 20);
+        up(WIDTH / 2, 20);
+        settle();
+        assertTrue("List scrolled", mListView.getFirstVisiblePosition() > 0);
+        for (int i = 0; i < mListView.getChildCount(); i++)
+            assertEquals("Row " + i + " height", ROW_HEIGHT, mListView.getChildAt(i).getHeight());
+        checkBudgets("fling");
+    }
+
+    private void down(float x, float y) {
+        long time = SystemClock.uptimeMillis();
+        frame(MotionEvent.obtain(time, time, MotionEvent.ACTION_DOWN, x, y, 0));
+    }
+
+    private void moveTo(float fromX, float fromY, float toX, float toY) {
+        long downTime = mEvents.get(0).getDownTime();
+        for (int i = 1; i <= MOVE_FRAMES; i++) {
+            float fraction = i / (float) MOVE_FRAMES;
+            frame(MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), MotionEvent.ACTION_MOVE,
+                    fromX + (toX - fromX) * fraction, fromY + (toY - fromY) * fraction, 0));
+        }
+    }
+
+    private void up(float x, float y) {
+        long downTime = mEvents.get(0).getDownTime();
+        frame(MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), MotionEvent.ACTION_UP, x, y, 0));
+    }
+
+    private void settle() {
+        for (int i = 0; i < SETTLE_FRAMES; i++)
+            frame(null);
+    }
+
+    /**
+     * Dispatch an event, then run the frame callbacks, animations and traversals due in the next
+     * frame, and keep the work done if it is the worst frame so far
+     */
+    private void frame(MotionEvent event) {
+        long[] before = sample();
+        if (event != null) {
+            mEvents.add(event);
+            mListView.dispatchTouchEvent(event);
+        }
+        SwipeListFixture.runFrames(1);
+        long[] after = sample();
+        for (int i = 0; i < METRICS.length; i++)
+            mWorstFrame[i] = Math.max(mWorstFrame[i], after[i] - before[i]);
+    }
+
+    private long[] sample() {
+        return new long[] {
+                mList.getGetViewCount(),
+                mList.getInflateCount(),
+                mList.getMeasureCount(),
+                mList.getLayoutRequestCount(),
+                mList.getLayoutCount(),
+                mMetrics.getCount(SwipeMetrics.PHASE_ALLOCATION)
+        };
+    }
+
+    private void checkBudgets(String scenario) {
+        for (MotionEvent event : mEvents)
+            event.recycle();
+        mEvents.clear();
+
+        Properties budgets = new Properties();
+        InputStream in = getClass().getResourceAsStream(BUDGETS);
+        assertNotNull("Missing " + BUDGETS, in);
+        try {
+            budgets.load(in);
+            in.close();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        recordMeasuredBudgets(scenario);
+
+        StringBuilder failures = new StringBuilder();
+        for (int i = 0; i < METRICS.length; i++) {
+            String key = scenario + "." + METRICS[i];
+            String budget = budgets.getProperty(key);
+            assertNotNull("No budget for " + key, budget);
+            if (mWorstFrame[i] > Long.parseLong(budget.trim()))
+                failures.append('\n').append(key).append(": ").append(mWorstFrame[i])
+                        .append(" in the worst frame, budget ").append(budget.trim());
+        }
+        assertTrue("Over budget, see " + MEASURED_BUDGETS + failures, failures.length() == 0);
+    }
+
+    private void recordMeasuredBudgets(String scenario) {
+        Properties measured = new Properties();
+        try {
+            if (MEASURED_BUDGETS.exists()) {
+                InputStream in = new FileInputStream(MEASURED_BUDGETS);
+                measured.load(in);
+                in.close();
+            } else if (!MEASURED_BUDGETS.getParentFile().mkdirs()) {
+                return;
+            }
+            for (int i = 0; i < METRICS.length; i++)
+                measured.setProperty(scenario + "." + METRICS[i], Long.toString(mWorstFrame[i]));
+            OutputStream out = new FileOutputStream(MEASURED_BUDGETS);
+            measured.store(out, "Work done in the worst frame of each scenario");
+            out.close();
+        } catch (IOException e) {
+            // The report is a convenience, the budgets are still checked
+        }
+    }
+}